@@ -1,6 +1,9 @@
 package com.vedavyaas.assignment.controller;
 
 import com.vedavyaas.assignment.model.DebtDTO;
+import com.vedavyaas.assignment.model.DebtUpdate;
+import com.vedavyaas.assignment.model.DebtUpdateResult;
+import com.vedavyaas.assignment.model.NoteDTO;
 import com.vedavyaas.assignment.model.Status;
 import com.vedavyaas.assignment.service.DebtAgentManagerService;
 import org.springframework.data.domain.Page;
@@ -35,11 +38,23 @@ public class DebtManagementController {
     }
 
     @Secured("SCOPE_ROLE_AGENT")
-    @PutMapping("/{id}")
-    public ResponseEntity<String> addDetails(@PathVariable Long id, @RequestParam List<String> notes, @AuthenticationPrincipal Jwt jwt) {
+    @PostMapping("/{id}/notes")
+    public ResponseEntity<String> appendNotes(@PathVariable Long id, @RequestBody List<String> notes, @AuthenticationPrincipal Jwt jwt) {
         return ResponseEntity.ok(debtAgentManagerService.addNotes(id, notes, jwt.getSubject()));
     }
 
+    @Secured("SCOPE_ROLE_AGENT")
+    @GetMapping("/{id}/notes")
+    public ResponseEntity<Page<NoteDTO>> getNotes(@PathVariable Long id, @RequestParam Integer pageStart, @RequestParam Integer pageSize, @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(debtAgentManagerService.getNotes(id, pageStart, pageSize, jwt.getSubject()));
+    }
+
+    @Secured("SCOPE_ROLE_AGENT")
+    @PatchMapping("/bulk")
+    public ResponseEntity<List<DebtUpdateResult>> bulkUpdate(@RequestBody List<DebtUpdate> updates, @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(debtAgentManagerService.bulkUpdate(updates, jwt.getSubject()));
+    }
+
     @Secured("SCOPE_ROLE_MANAGER")
     @PatchMapping("/agent/{id}")
     public ResponseEntity<String> changeAgent(@PathVariable Long id, @RequestParam String agentName, @AuthenticationPrincipal Jwt jwt) {
@@ -51,4 +66,10 @@ public class DebtManagementController {
     public ResponseEntity<DebtDTO> getSpecificDebt(@PathVariable String debtName, @AuthenticationPrincipal Jwt jwt) {
         return ResponseEntity.ok(debtAgentManagerService.getSingleDebt(debtName, jwt.getSubject()));
     }
-}
\ No newline at end of file
+
+    @Secured("SCOPE_ROLE_MANAGER")
+    @GetMapping("/debt/{debtName}/notes")
+    public ResponseEntity<Page<NoteDTO>> getDebtNotes(@PathVariable String debtName, @RequestParam Integer pageStart, @RequestParam Integer pageSize, @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(debtAgentManagerService.getManagerNotes(debtName, pageStart, pageSize, jwt.getSubject()));
+    }
+}
@@ -0,0 +1,4 @@
+package com.vedavyaas.assignment.model;
+
+public record AgentCapacity(Long id, Integer casesPending, Double successRate) {
+}
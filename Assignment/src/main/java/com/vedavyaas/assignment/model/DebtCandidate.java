@@ -0,0 +1,4 @@
+package com.vedavyaas.assignment.model;
+
+public record DebtCandidate(Long id, Double recoveryProbability, Double trustScore, Integer niceValue) {
+}
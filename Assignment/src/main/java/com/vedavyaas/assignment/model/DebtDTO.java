@@ -2,5 +2,9 @@ package com.vedavyaas.assignment.model;
 
 import java.util.List;
 
+/**
+ * sightInformation holds the most recent notes of a single debt, oldest first, and is null in debt
+ * lists; the full history is paged from the notes endpoints.
+ */
 public record DebtDTO(Long id, String debtName, String agentName, String managerName, Double recoveryProbability, Double trustScore, List<String> sightInformation) {
 }
@@ -0,0 +1,10 @@
+package com.vedavyaas.assignment.model;
+
+import java.time.Instant;
+
+/**
+ * The fields of a debt that agent statistics are derived from, captured before a change so the
+ * difference to the changed debt can be applied.
+ */
+public record DebtState(Long agentId, Status status, Instant createdAt, Instant completedAt) {
+}
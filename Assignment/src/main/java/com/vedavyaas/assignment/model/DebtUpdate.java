@@ -0,0 +1,9 @@
+package com.vedavyaas.assignment.model;
+
+import java.util.List;
+
+/**
+ * One item of a bulk update, status and notes are both optional.
+ */
+public record DebtUpdate(Long id, Status status, List<String> notes) {
+}
@@ -0,0 +1,4 @@
+package com.vedavyaas.assignment.model;
+
+public record DebtUpdateResult(Long id, boolean success, String message) {
+}
@@ -0,0 +1,6 @@
+package com.vedavyaas.assignment.model;
+
+import java.time.Instant;
+
+public record NoteDTO(Long id, String note, String authorName, Instant createdAt) {
+}
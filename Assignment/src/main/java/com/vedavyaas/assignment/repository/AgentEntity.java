@@ -17,6 +17,8 @@ public class AgentEntity {
     private Double trustScore;
     private Double successRate;
     private Double averageResolutionTime;
+    // seconds summed over solved cases, kept so averageResolutionTime can be updated without a scan
+    private Long totalResolutionSeconds;
 
     public AgentEntity() {
     }
@@ -25,6 +27,7 @@ public class AgentEntity {
         this.agentName = agentName;
         this.casesPending = this.casesSolved = this.niceValue = 0;
         this.trustScore = this.successRate = this.averageResolutionTime = 0.0;
+        this.totalResolutionSeconds = 0L;
     }
 
     public void setId(Long id) {
@@ -83,6 +86,14 @@ public class AgentEntity {
         this.averageResolutionTime = averageResolutionTime;
     }
 
+    public Long getTotalResolutionSeconds() {
+        return totalResolutionSeconds;
+    }
+
+    public void setTotalResolutionSeconds(Long totalResolutionSeconds) {
+        this.totalResolutionSeconds = totalResolutionSeconds;
+    }
+
     public Integer getNiceValue() {
         return niceValue;
     }
@@ -1,9 +1,82 @@
 package com.vedavyaas.assignment.repository;
 
+import com.vedavyaas.assignment.model.AgentCapacity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface AgentRepository extends JpaRepository<AgentEntity, Long> {
     Optional<AgentEntity> findByAgentName(String agentName);
+
+    // Values, not entities: the statistics move through the native updates below, which do not refresh
+    // agents already managed in the transaction, so an entity read can return an old casesPending.
+    @Query("SELECT new com.vedavyaas.assignment.model.AgentCapacity(a.id, a.casesPending, a.successRate) " +
+            "FROM AgentEntity a WHERE COALESCE(a.casesPending, 0) < :maxPending")
+    List<AgentCapacity> findWithCapacity(@Param("maxPending") int maxPending);
+
+    // Relative update, safe against concurrent deltas on the same agent. The right hand sides read the
+    // values from before the update. The success rate is the share of solved cases among solved and
+    // pending ones.
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE agent_entity
+            SET cases_pending = cases_pending + :pending,
+                cases_solved = cases_solved + :solved,
+                total_resolution_seconds = total_resolution_seconds + :seconds,
+                average_resolution_time = CASE WHEN cases_solved + :solved > 0
+                    THEN FLOOR(CAST(total_resolution_seconds + :seconds AS DOUBLE PRECISION) / (cases_solved + :solved) / 86400)
+                    ELSE 0 END,
+                success_rate = CASE WHEN cases_solved + :solved + cases_pending + :pending > 0
+                    THEN CAST(cases_solved + :solved AS DOUBLE PRECISION) / (cases_solved + :solved + cases_pending + :pending)
+                    ELSE 0 END
+            WHERE id = :id
+            """, nativeQuery = true)
+    int applyStatisticsDelta(@Param("id") Long id, @Param("pending") int pending, @Param("solved") int solved, @Param("seconds") long seconds);
+
+    // One grouped scan of debt_entity for every agent. The average divides the summed resolution time by
+    // all solved cases and is truncated to whole days.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            MERGE INTO agent_entity a
+            USING (
+                SELECT agent_entity_id,
+                       SUM(CASE WHEN status = 'PENDING' THEN 1 ELSE 0 END) AS pending,
+                       SUM(CASE WHEN status = 'APPROVED' THEN 1 ELSE 0 END) AS solved,
+                       SUM(CASE WHEN status = 'APPROVED' AND created_at IS NOT NULL AND completed_at IS NOT NULL
+                                THEN DATEDIFF('SECOND', created_at, completed_at) ELSE 0 END) AS resolution_seconds
+                FROM debt_entity
+                WHERE agent_entity_id IS NOT NULL
+                GROUP BY agent_entity_id
+            ) s
+            ON a.id = s.agent_entity_id
+            WHEN MATCHED THEN
+                UPDATE SET cases_pending = s.pending,
+                           cases_solved = s.solved,
+                           total_resolution_seconds = s.resolution_seconds,
+                           average_resolution_time = CASE WHEN s.solved > 0
+                               THEN FLOOR(CAST(s.resolution_seconds AS DOUBLE PRECISION) / s.solved / 86400)
+                               ELSE 0 END,
+                           success_rate = CASE WHEN s.solved + s.pending > 0
+                               THEN CAST(s.solved AS DOUBLE PRECISION) / (s.solved + s.pending)
+                               ELSE 0 END
+            """, nativeQuery = true)
+    int aggregateStatistics();
+
+    // Agents the grouped scan did not reach, their last debt was moved to someone else.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            UPDATE agent_entity a
+            SET cases_pending = 0, cases_solved = 0, total_resolution_seconds = 0, average_resolution_time = 0, success_rate = 0
+            WHERE NOT EXISTS (SELECT 1 FROM debt_entity d WHERE d.agent_entity_id = a.id)
+              AND (a.cases_pending <> 0 OR a.cases_solved <> 0 OR a.total_resolution_seconds <> 0 OR a.success_rate <> 0)
+            """, nativeQuery = true)
+    int resetIdleStatistics();
 }
@@ -4,14 +4,16 @@ import com.vedavyaas.assignment.model.Status;
 import jakarta.persistence.*;
 
 import java.time.Instant;
-import java.util.List;
 
 @Entity
 public class DebtEntity {
+    // debt_entity_seq is also read by the MERGE statements in DebtUpsertRepository, one value per row
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "debt_seq")
+    @SequenceGenerator(name = "debt_seq", sequenceName = "debt_entity_seq", allocationSize = 1)
     private Long id;
 
+    @Column(unique = true, nullable = false)
     private String debtName;
 
     @ManyToOne
@@ -25,7 +27,6 @@ public class DebtEntity {
     private Double recoveryProbability;
     private Double trustScore;
     private Integer niceValue;
-    private List<String> sightInformation;
     private boolean calculated;
 
     @Enumerated(value = EnumType.STRING)
@@ -112,14 +113,6 @@ public class DebtEntity {
         this.niceValue = niceValue;
     }
 
-    public List<String> getSightInformation() {
-        return sightInformation;
-    }
-
-    public void setSightInformation(List<String> sightInformation) {
-        this.sightInformation.addAll(sightInformation);
-    }
-
     public boolean isCalculated() {
         return calculated;
     }
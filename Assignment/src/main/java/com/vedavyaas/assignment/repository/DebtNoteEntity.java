@@ -0,0 +1,79 @@
+package com.vedavyaas.assignment.repository;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * One note on a debt, notes are only ever appended. Kept apart from {@link DebtEntity} so that loading
+ * debts never loads their notes and adding a note is a single insert.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_debt_note_debt", columnList = "debt_entity_id, id"))
+public class DebtNoteEntity {
+    public static final int MAX_NOTE_LENGTH = 2000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "debt_entity_id", nullable = false)
+    private DebtEntity debtEntity;
+
+    @Column(length = MAX_NOTE_LENGTH, nullable = false)
+    private String note;
+
+    private String authorName;
+    private Instant createdAt;
+
+    public DebtNoteEntity() {
+    }
+
+    public DebtNoteEntity(DebtEntity debtEntity, String note, String authorName) {
+        this.debtEntity = debtEntity;
+        this.note = note;
+        this.authorName = authorName;
+        this.createdAt = Instant.now();
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public DebtEntity getDebtEntity() {
+        return debtEntity;
+    }
+
+    public void setDebtEntity(DebtEntity debtEntity) {
+        this.debtEntity = debtEntity;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        this.authorName = authorName;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
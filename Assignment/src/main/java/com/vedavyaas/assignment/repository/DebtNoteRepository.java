@@ -0,0 +1,16 @@
+package com.vedavyaas.assignment.repository;
+
+import com.vedavyaas.assignment.model.NoteDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface DebtNoteRepository extends JpaRepository<DebtNoteEntity, Long> {
+    // Newest first, served from idx_debt_note_debt without touching debt_entity.
+    @Query(value = "SELECT new com.vedavyaas.assignment.model.NoteDTO(n.id, n.note, n.authorName, n.createdAt) " +
+            "FROM DebtNoteEntity n WHERE n.debtEntity.id = :debtId ORDER BY n.id DESC",
+            countQuery = "SELECT COUNT(n) FROM DebtNoteEntity n WHERE n.debtEntity.id = :debtId")
+    Page<NoteDTO> findNotes(@Param("debtId") Long debtId, Pageable pageable);
+}
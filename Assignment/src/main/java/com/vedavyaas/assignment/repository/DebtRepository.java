@@ -1,22 +1,41 @@
 package com.vedavyaas.assignment.repository;
 
+import com.vedavyaas.assignment.model.DebtCandidate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface DebtRepository extends JpaRepository<DebtEntity, Long> {
     Optional<DebtEntity> findByDebtName(String debtName);
 
-    Optional<List<DebtEntity>> findByAgentEntity(AgentEntity agentEntity);
+    List<DebtEntity> findByDebtNameIn(Collection<String> debtNames);
 
     Page<DebtEntity> findByAgentEntity(AgentEntity agentEntity, Pageable pageable);
 
     Optional<DebtEntity> findByIdAndAgentEntity(Long id, AgentEntity agentEntity);
 
+    List<DebtEntity> findByIdInAndAgentEntity(Collection<Long> ids, AgentEntity agentEntity);
+
+    boolean existsByIdAndAgentEntity(Long id, AgentEntity agentEntity);
+
     Optional<DebtEntity> findByIdAndManagerEntity(Long id, ManagerEntity managerEntity);
 
     Optional<DebtEntity> findByDebtNameAndManagerEntity(String debtName, ManagerEntity managerEntity);
+
+    @Query("SELECT new com.vedavyaas.assignment.model.DebtCandidate(d.id, d.recoveryProbability, d.trustScore, d.niceValue) " +
+            "FROM DebtEntity d WHERE d.agentEntity IS NULL AND d.calculated = true " +
+            "AND d.status = com.vedavyaas.assignment.model.Status.PENDING AND d.debtName IN :debtNames")
+    List<DebtCandidate> findUnassigned(@Param("debtNames") Collection<String> debtNames);
+
+    // Keyset scan, the caller passes the last id it has seen.
+    @Query("SELECT new com.vedavyaas.assignment.model.DebtCandidate(d.id, d.recoveryProbability, d.trustScore, d.niceValue) " +
+            "FROM DebtEntity d WHERE d.agentEntity IS NULL AND d.calculated = true " +
+            "AND d.status = com.vedavyaas.assignment.model.Status.PENDING AND d.id > :after ORDER BY d.id")
+    List<DebtCandidate> findUnassignedAfter(@Param("after") Long after, Pageable pageable);
 }
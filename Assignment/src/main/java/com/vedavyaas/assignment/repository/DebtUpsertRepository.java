@@ -0,0 +1,89 @@
+package com.vedavyaas.assignment.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Idempotent debt writes for the Kafka listeners. Each statement is a MERGE on the unique debt_name
+ * column, so there is no read before the write, and a redelivered message updates nothing or the same
+ * row again instead of inserting a duplicate. A whole poll goes to the database as one JDBC batch.
+ */
+@Repository
+public class DebtUpsertRepository {
+    private static final String MERGE_DEBT = """
+            MERGE INTO debt_entity d
+            USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS BIGINT))) AS s(debt_name, manager_entity_id)
+            ON d.debt_name = s.debt_name
+            WHEN NOT MATCHED THEN
+                INSERT (id, debt_name, manager_entity_id, calculated, status, created_at)
+                VALUES (NEXT VALUE FOR debt_entity_seq, s.debt_name, s.manager_entity_id, FALSE, 'PENDING', CURRENT_TIMESTAMP)
+            """;
+
+    private static final String MERGE_PREDICTION = """
+            MERGE INTO debt_entity d
+            USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION),
+                           CAST(? AS DOUBLE PRECISION), CAST(? AS INTEGER)))
+                AS s(debt_name, manager_entity_id, recovery_probability, trust_score, nice_value)
+            ON d.debt_name = s.debt_name
+            WHEN MATCHED AND d.calculated = FALSE THEN
+                UPDATE SET calculated = TRUE,
+                           recovery_probability = s.recovery_probability,
+                           trust_score = s.trust_score,
+                           nice_value = s.nice_value
+            WHEN NOT MATCHED THEN
+                INSERT (id, debt_name, manager_entity_id, recovery_probability, trust_score, nice_value, calculated, status, created_at)
+                VALUES (NEXT VALUE FOR debt_entity_seq, s.debt_name, s.manager_entity_id, s.recovery_probability,
+                        s.trust_score, s.nice_value, TRUE, 'PENDING', CURRENT_TIMESTAMP)
+            """;
+
+    private static final String ASSIGN_AGENT = """
+            UPDATE debt_entity SET agent_entity_id = ? WHERE id = ? AND agent_entity_id IS NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DebtUpsertRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the debts that do not exist yet, existing ones are left untouched.
+     */
+    public void mergeDebts(Collection<DebtEntity> debts) {
+        List<Object[]> rows = new ArrayList<>(debts.size());
+        for (DebtEntity debt : debts) {
+            rows.add(new Object[]{debt.getDebtName(), debt.getManagerEntity().getId()});
+        }
+        if (!rows.isEmpty()) jdbcTemplate.batchUpdate(MERGE_DEBT, rows);
+    }
+
+    /**
+     * Inserts scored debts, or scores an existing debt that has not been calculated yet.
+     */
+    public void mergePredictions(Collection<DebtEntity> debts) {
+        List<Object[]> rows = new ArrayList<>(debts.size());
+        for (DebtEntity debt : debts) {
+            rows.add(new Object[]{
+                    debt.getDebtName(),
+                    debt.getManagerEntity().getId(),
+                    debt.getRecoveryProbability(),
+                    debt.getTrustScore(),
+                    debt.getNiceValue()
+            });
+        }
+        if (!rows.isEmpty()) jdbcTemplate.batchUpdate(MERGE_PREDICTION, rows);
+    }
+
+    /**
+     * Sets the agent of debts that have none yet, as one batch. Each row is {agentId, debtId}; the
+     * result holds 1 for every row that was assigned and 0 for a debt someone else assigned first.
+     */
+    public int[] assignAgents(List<Object[]> rows) {
+        if (rows.isEmpty()) return new int[0];
+        return jdbcTemplate.batchUpdate(ASSIGN_AGENT, rows);
+    }
+}
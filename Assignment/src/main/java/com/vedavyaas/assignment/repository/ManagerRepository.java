@@ -2,8 +2,12 @@ package com.vedavyaas.assignment.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ManagerRepository extends JpaRepository<ManagerEntity, Long> {
     Optional<ManagerEntity> findByManagerName(String managerName);
+
+    List<ManagerEntity> findByManagerNameIn(Collection<String> managerNames);
 }
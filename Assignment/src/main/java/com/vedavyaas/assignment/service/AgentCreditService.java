@@ -1,68 +1,108 @@
 package com.vedavyaas.assignment.service;
 
+import com.vedavyaas.assignment.model.DebtState;
 import com.vedavyaas.assignment.model.Status;
-import com.vedavyaas.assignment.repository.AgentEntity;
 import com.vedavyaas.assignment.repository.AgentRepository;
 import com.vedavyaas.assignment.repository.DebtEntity;
-import com.vedavyaas.assignment.repository.DebtRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
+/**
+ * Keeps casesPending, casesSolved and averageResolutionTime of every agent current.
+ *
+ * Whatever changes the status, the agent or the completion time of a debt reports it through
+ * {@link #recordChange(DebtState, DebtEntity)} inside its own transaction; the difference is applied
+ * to the affected agents with relative updates, so the statistics commit or roll back together with
+ * the debt. A reconciliation recomputes everything from the debts now and then, to correct drift from
+ * concurrent changes to the same debt or writes that bypass this service.
+ */
 @Service
 public class AgentCreditService {
+    private static final Logger logger = LoggerFactory.getLogger(AgentCreditService.class);
+
     private final AgentRepository agentRepository;
-    private final DebtRepository debtRepository;
 
-    public AgentCreditService(AgentRepository agentRepository, DebtRepository debtRepository) {
+    public AgentCreditService(AgentRepository agentRepository) {
         this.agentRepository = agentRepository;
-        this.debtRepository = debtRepository;
     }
 
-    @Scheduled(fixedDelay = 1_00_000)
-    public void agentScoringEngine() {
-        Pageable pageable;
-        Page<AgentEntity> agentEntities;
-        int i = 0;
-        do {
-            pageable = PageRequest.of(i++, 10);
-            agentEntities = agentRepository.findAll(pageable);
-
-            for (var agent : agentEntities) {
-                Optional<List<DebtEntity>> debtEntityList = debtRepository.findByAgentEntity(agent);
-                if (debtEntityList.isPresent()) {
-                    int casesPending = 0;
-                    int casesSolved = 0;
-                    Duration resolutionTime = Duration.ZERO;
-                    for (var debt : debtEntityList.get()) {
-                        if (debt.getStatus().equals(Status.PENDING)) casesPending++;
-                        else if (debt.getStatus().equals(Status.APPROVED)) {
-                            casesSolved++;
-                            if (debt.getCreatedAt() != null && debt.getCompletedAt() != null) {
-                                resolutionTime = resolutionTime.plus(Duration.between(debt.getCreatedAt(), debt.getCompletedAt()));
-                            }
-                        }
-                    }
-
-                    agent.setCasesPending(casesPending);
-                    agent.setCasesSolved(casesSolved);
-                    if (casesSolved > 0) {
-                        agent.setAverageResolutionTime((double) resolutionTime.dividedBy(casesSolved).toDays());
-                    } else {
-                        agent.setAverageResolutionTime(0.0);
-                    }
-                }
+    public DebtState snapshot(DebtEntity debtEntity) {
+        return new DebtState(
+                debtEntity.getAgentEntity() != null ? debtEntity.getAgentEntity().getId() : null,
+                debtEntity.getStatus(),
+                debtEntity.getCreatedAt(),
+                debtEntity.getCompletedAt()
+        );
+    }
+
+    @Transactional
+    public void recordChange(DebtState before, DebtEntity after) {
+        recordChanges(List.of(before), List.of(after));
+    }
+
+    /**
+     * Same as {@link #recordChange(DebtState, DebtEntity)} for many debts, the differences are summed
+     * per agent first so each agent gets one update.
+     */
+    @Transactional
+    public void recordChanges(List<DebtState> before, List<DebtEntity> after) {
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (int i = 0; i < before.size(); i++) {
+            DebtState old = before.get(i);
+            DebtState now = snapshot(after.get(i));
+            if (old.equals(now)) continue;
+
+            add(deltas, old.agentId(), old, -1);
+            add(deltas, now.agentId(), now, 1);
+        }
+
+        deltas.forEach((agentId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0 || delta[2] != 0) {
+                agentRepository.applyStatisticsDelta(agentId, (int) delta[0], (int) delta[1], delta[2]);
             }
+        });
+    }
 
-            agentRepository.saveAll(agentEntities);
+    /**
+     * Recomputes the statistics of every agent inside the database, one grouped scan over the debts
+     * whatever the number of agents.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${assignment.statistics.reconcile-interval-ms:3600000}")
+    public void agentScoringEngine() {
+        int aggregated = agentRepository.aggregateStatistics();
+        int reset = agentRepository.resetIdleStatistics();
+        logger.debug("Agent statistics : {} agents reconciled, {} reset.", aggregated, reset);
+
+        //ml model to be done.
+    }
+
+    private static void add(Map<Long, long[]> deltas, Long agentId, DebtState state, int sign) {
+        if (agentId == null) return;
+        long[] delta = deltas.computeIfAbsent(agentId, id -> new long[3]);
+        delta[0] += sign * pending(state);
+        delta[1] += sign * solved(state);
+        delta[2] += sign * seconds(state);
+    }
+
+    private static int pending(DebtState state) {
+        return state.status() == Status.PENDING ? 1 : 0;
+    }
+
+    private static int solved(DebtState state) {
+        return state.status() == Status.APPROVED ? 1 : 0;
+    }
 
-            //ml model to be done.
-        } while (agentEntities.hasNext());
+    private static long seconds(DebtState state) {
+        if (state.status() != Status.APPROVED || state.createdAt() == null || state.completedAt() == null) return 0;
+        return Duration.between(state.createdAt(), state.completedAt()).getSeconds();
     }
 }
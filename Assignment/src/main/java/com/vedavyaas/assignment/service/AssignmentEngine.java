@@ -0,0 +1,163 @@
+package com.vedavyaas.assignment.service;
+
+import com.vedavyaas.assignment.model.AgentCapacity;
+import com.vedavyaas.assignment.model.DebtCandidate;
+import com.vedavyaas.assignment.repository.AgentRepository;
+import com.vedavyaas.assignment.repository.DebtRepository;
+import com.vedavyaas.assignment.repository.DebtUpsertRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Places scored, pending debts without an agent on agents.
+ *
+ * Debts are taken best first, by recovery probability, then trust score, then nice value, so when a
+ * bulk load is larger than the free capacity it is the most recoverable debts that get worked. Agents
+ * sit in a min-heap on their pending cases weighted by their success rate, the share of solved among
+ * solved and pending cases kept by {@link AgentRepository}; every debt goes to the top
+ * of the heap, which is pushed back with one more case, O(log agents) per debt. An agent at the
+ * pending limit leaves the heap.
+ *
+ * The agent statistics are the source of the loads, the heap is built once per batch from a fresh read,
+ * so the pages of a sweep see what the earlier pages assigned. Agents are not tied to managers in this
+ * service, so all debts share one heap. The assignment itself only writes debts without an agent, a
+ * debt someone else assigned first is skipped and not counted.
+ */
+@Service
+public class AssignmentEngine {
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentEngine.class);
+
+    private static final Comparator<DebtCandidate> BEST_FIRST = Comparator
+            .comparingDouble((DebtCandidate debt) -> valueOf(debt.recoveryProbability()))
+            .thenComparingDouble(debt -> valueOf(debt.trustScore()))
+            .thenComparingInt(debt -> debt.niceValue() != null ? debt.niceValue() : 0)
+            .reversed();
+
+    private final DebtRepository debtRepository;
+    private final DebtUpsertRepository debtUpsertRepository;
+    private final AgentRepository agentRepository;
+    private final int maxPending;
+    private final int sweepSize;
+    private final Counter assignedCounter;
+
+    public AssignmentEngine(DebtRepository debtRepository,
+                            DebtUpsertRepository debtUpsertRepository,
+                            AgentRepository agentRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${assignment.auto-assign.max-pending:500}") int maxPending,
+                            @Value("${assignment.auto-assign.sweep-size:1000}") int sweepSize) {
+        this.debtRepository = debtRepository;
+        this.debtUpsertRepository = debtUpsertRepository;
+        this.agentRepository = agentRepository;
+        this.maxPending = maxPending;
+        this.sweepSize = sweepSize;
+        this.assignedCounter = meterRegistry.counter("assignment.auto.assigned");
+    }
+
+    /**
+     * Assigns the given debts that are ready for it, meant to run right after they were merged and in
+     * the same transaction.
+     */
+    @Transactional
+    public int assign(Collection<String> debtNames) {
+        if (debtNames.isEmpty()) return 0;
+        return assignCandidates(debtRepository.findUnassigned(debtNames));
+    }
+
+    /**
+     * Picks up what the listeners could not place, debts that came in while every agent was full or
+     * before any agent existed.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${assignment.auto-assign.sweep-interval-ms:60000}")
+    public void sweep() {
+        long after = 0;
+        int total = 0;
+        List<DebtCandidate> candidates;
+        do {
+            candidates = debtRepository.findUnassignedAfter(after, PageRequest.of(0, sweepSize));
+            if (candidates.isEmpty()) break;
+
+            after = candidates.get(candidates.size() - 1).id();
+            int assigned = assignCandidates(candidates);
+            total += assigned;
+            // every agent is full, the rest would not be placed either
+            if (assigned == 0) break;
+        } while (candidates.size() == sweepSize);
+
+        if (total > 0) logger.info("Sweep assigned {} debts.", total);
+    }
+
+    private int assignCandidates(List<DebtCandidate> candidates) {
+        if (candidates.isEmpty()) return 0;
+
+        PriorityQueue<AgentLoad> heap = new PriorityQueue<>();
+        for (AgentCapacity agent : agentRepository.findWithCapacity(maxPending)) {
+            int pending = agent.casesPending() != null ? agent.casesPending() : 0;
+            heap.add(new AgentLoad(agent.id(), pending, valueOf(agent.successRate())));
+        }
+        if (heap.isEmpty()) return 0;
+
+        List<DebtCandidate> ordered = new ArrayList<>(candidates);
+        ordered.sort(BEST_FIRST);
+
+        List<Object[]> rows = new ArrayList<>(ordered.size());
+        for (DebtCandidate debt : ordered) {
+            AgentLoad agent = heap.poll();
+            if (agent == null) break;
+
+            rows.add(new Object[]{agent.id, debt.id()});
+            agent.pending++;
+            if (agent.pending < maxPending) heap.add(agent);
+        }
+
+        int[] results = debtUpsertRepository.assignAgents(rows);
+        Map<Long, Integer> assignedPerAgent = new HashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] > 0) assignedPerAgent.merge((Long) rows.get(i)[0], 1, Integer::sum);
+        }
+        // the debts are pending, so this is what AgentCreditService.recordChange would apply for each
+        assignedPerAgent.forEach((agentId, count) -> agentRepository.applyStatisticsDelta(agentId, count, 0, 0));
+
+        int assigned = assignedPerAgent.values().stream().mapToInt(Integer::intValue).sum();
+        assignedCounter.increment(assigned);
+        return assigned;
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private static final class AgentLoad implements Comparable<AgentLoad> {
+        private final Long id;
+        private final double weight;
+        private int pending;
+
+        private AgentLoad(Long id, int pending, double successRate) {
+            this.id = id;
+            this.pending = pending;
+            this.weight = 1.0 + Math.max(0.0, successRate);
+        }
+
+        @Override
+        public int compareTo(AgentLoad other) {
+            int load = Double.compare(pending / weight, other.pending / other.weight);
+            return load != 0 ? load : Long.compare(id, other.id);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.vedavyaas.assignment.service;
 
 import com.vedavyaas.assignment.model.DebtDTO;
+import com.vedavyaas.assignment.model.DebtState;
+import com.vedavyaas.assignment.model.DebtUpdate;
+import com.vedavyaas.assignment.model.DebtUpdateResult;
 import com.vedavyaas.assignment.model.InvalidCredentialException;
+import com.vedavyaas.assignment.model.NoteDTO;
 import com.vedavyaas.assignment.model.Status;
 import com.vedavyaas.assignment.repository.*;
 import org.jspecify.annotations.Nullable;
@@ -10,25 +14,36 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.parameters.P;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.swing.text.html.Option;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class DebtAgentManagerService {
+    private static final int MAX_BULK_UPDATES = 1000;
+    private static final int RECENT_NOTES = 20;
+
     private final DebtRepository debtRepository;
-    private final AgentRepository agentRepository;
-    private final ManagerRepository managerRepository;
+    private final DebtNoteRepository debtNoteRepository;
+    private final NameCache nameCache;
+    private final AgentCreditService agentCreditService;
 
-    public DebtAgentManagerService(DebtRepository debtRepository, AgentRepository agentRepository, ManagerRepository managerRepository) {
+    public DebtAgentManagerService(DebtRepository debtRepository, DebtNoteRepository debtNoteRepository, NameCache nameCache, AgentCreditService agentCreditService) {
         this.debtRepository = debtRepository;
-        this.agentRepository = agentRepository;
-        this.managerRepository = managerRepository;
+        this.debtNoteRepository = debtNoteRepository;
+        this.nameCache = nameCache;
+        this.agentCreditService = agentCreditService;
     }
 
     public Page<DebtDTO> getDebts(Integer pageStart, Integer pageSize, String agentName) {
-        Optional<AgentEntity> agentEntity = agentRepository.findByAgentName(agentName);
+        Optional<AgentEntity> agentEntity = nameCache.findAgent(agentName);
 
         if (agentEntity.isEmpty()) {
             return Page.empty();
@@ -44,12 +59,13 @@ public class DebtAgentManagerService {
                     debt.getManagerEntity().getManagerName(),
                     debt.getRecoveryProbability(),
                     debt.getTrustScore(),
-                    debt.getSightInformation()
+                    null
         ));
     }
 
+    @Transactional
     public String changeStatus(Long id, Status status, String agentName) {
-        Optional<AgentEntity> agentEntity = agentRepository.findByAgentName(agentName);
+        Optional<AgentEntity> agentEntity = nameCache.findAgent(agentName);
 
         if (agentEntity.isEmpty()) {
             throw new InvalidCredentialException("Some error occurred.");
@@ -62,37 +78,172 @@ public class DebtAgentManagerService {
         }
 
         if (!status.equals(Status.APPROVED) && !status.equals(debtEntity.get().getStatus())) {
+            DebtState before = agentCreditService.snapshot(debtEntity.get());
             debtEntity.get().setStatus(status);
             debtRepository.save(debtEntity.get());
+            agentCreditService.recordChange(before, debtEntity.get());
             return "Status changed successfully.";
         }
 
         return "No changes.";
     }
 
+    /**
+     * Appends the notes, one insert each, the debt itself is neither loaded nor written. Nothing is
+     * stored if any of the notes is blank or too long.
+     */
+    @Transactional
     public String addNotes(Long id, List<String> notes, String agentName) {
-        if (notes.isEmpty()) return "No data to change.";
+        if (notes == null || notes.isEmpty()) return "No data to change.";
+
+        String invalidNotes = checkNotes(notes);
+        if (invalidNotes != null) {
+            throw new InvalidCredentialException(invalidNotes);
+        }
 
-        Optional<AgentEntity> agentEntity = agentRepository.findByAgentName(agentName);
+        Optional<AgentEntity> agentEntity = nameCache.findAgent(agentName);
 
         if (agentEntity.isEmpty()) {
             throw new InvalidCredentialException("Some error occurred.");
         }
 
-        Optional<DebtEntity> debtEntity = debtRepository.findByIdAndAgentEntity(id, agentEntity.get());
-
-        if (debtEntity.isEmpty()) {
+        if (!debtRepository.existsByIdAndAgentEntity(id, agentEntity.get())) {
             throw new InvalidCredentialException("No such debt exist.");
         }
 
-        debtEntity.get().setSightInformation(notes);
-        debtRepository.save(debtEntity.get());
+        DebtEntity debtEntity = debtRepository.getReferenceById(id);
+        List<DebtNoteEntity> noteEntities = new ArrayList<>(notes.size());
+        for (String note : notes) {
+            noteEntities.add(new DebtNoteEntity(debtEntity, note, agentName));
+        }
+        debtNoteRepository.saveAll(noteEntities);
 
         return "Data added successfully.";
     }
 
+    public Page<NoteDTO> getNotes(Long id, Integer pageStart, Integer pageSize, String agentName) {
+        Optional<AgentEntity> agentEntity = nameCache.findAgent(agentName);
+
+        if (agentEntity.isEmpty()) {
+            throw new InvalidCredentialException("Some error occurred.");
+        }
+
+        if (!debtRepository.existsByIdAndAgentEntity(id, agentEntity.get())) {
+            throw new InvalidCredentialException("No such debt exist.");
+        }
+
+        return debtNoteRepository.findNotes(id, PageRequest.of(pageStart, pageSize));
+    }
+
+    public Page<NoteDTO> getManagerNotes(String debtName, Integer pageStart, Integer pageSize, String managerName) {
+        Optional<ManagerEntity> managerEntity = nameCache.findManager(managerName);
+        if (managerEntity.isEmpty()) {
+            throw new InvalidCredentialException("Some error occurred.");
+        }
+
+        Optional<DebtEntity> debtEntity = debtRepository.findByDebtNameAndManagerEntity(debtName, managerEntity.get());
+        if (debtEntity.isEmpty()) {
+            throw new InvalidCredentialException("Some error occurred.");
+        }
+
+        return debtNoteRepository.findNotes(debtEntity.get().getId(), PageRequest.of(pageStart, pageSize));
+    }
+
+    /**
+     * Applies many status and note changes of one agent. Ownership of every debt is checked with one
+     * IN query, the changed debts are written back and the notes appended as JDBC batches, and the agent
+     * statistics get one update. Every item gets its own result, a bad item does not fail the others:
+     * items are checked before anything is written, so the flush only sees rows that can be stored.
+     */
+    @Transactional
+    public List<DebtUpdateResult> bulkUpdate(List<DebtUpdate> updates, String agentName) {
+        if (updates == null || updates.isEmpty()) {
+            throw new InvalidCredentialException("No updates given.");
+        }
+
+        if (updates.size() > MAX_BULK_UPDATES) {
+            throw new InvalidCredentialException("At most " + MAX_BULK_UPDATES + " updates per request.");
+        }
+
+        Optional<AgentEntity> agentEntity = nameCache.findAgent(agentName);
+
+        if (agentEntity.isEmpty()) {
+            throw new InvalidCredentialException("Some error occurred.");
+        }
+
+        Set<Long> ids = new HashSet<>();
+        for (DebtUpdate update : updates) {
+            if (update != null && update.id() != null) ids.add(update.id());
+        }
+
+        Map<Long, DebtEntity> owned = new HashMap<>();
+        for (DebtEntity debtEntity : debtRepository.findByIdInAndAgentEntity(ids, agentEntity.get())) {
+            owned.put(debtEntity.getId(), debtEntity);
+        }
+
+        List<DebtUpdateResult> results = new ArrayList<>(updates.size());
+        List<DebtState> before = new ArrayList<>();
+        List<DebtEntity> changed = new ArrayList<>();
+        List<DebtNoteEntity> noteEntities = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+
+        for (DebtUpdate update : updates) {
+            if (update == null) {
+                results.add(new DebtUpdateResult(null, false, "Empty update."));
+                continue;
+            }
+            DebtEntity debtEntity = owned.get(update.id());
+            if (debtEntity == null) {
+                results.add(new DebtUpdateResult(update.id(), false, "No such debt exist."));
+                continue;
+            }
+            String invalidNotes = checkNotes(update.notes());
+            if (invalidNotes != null) {
+                results.add(new DebtUpdateResult(update.id(), false, invalidNotes));
+                continue;
+            }
+            if (!seen.add(update.id())) {
+                results.add(new DebtUpdateResult(update.id(), false, "Duplicate update."));
+                continue;
+            }
+            if (Status.APPROVED.equals(update.status())) {
+                results.add(new DebtUpdateResult(update.id(), false, "Status cannot be set to APPROVED."));
+                continue;
+            }
+
+            DebtState state = agentCreditService.snapshot(debtEntity);
+            boolean statusChanged = update.status() != null && !update.status().equals(debtEntity.getStatus());
+            boolean notesAdded = update.notes() != null && !update.notes().isEmpty();
+
+            if (!statusChanged && !notesAdded) {
+                results.add(new DebtUpdateResult(update.id(), true, "No changes."));
+                continue;
+            }
+
+            if (statusChanged) {
+                debtEntity.setStatus(update.status());
+                before.add(state);
+                changed.add(debtEntity);
+            }
+            if (notesAdded) {
+                for (String note : update.notes()) {
+                    noteEntities.add(new DebtNoteEntity(debtEntity, note, agentName));
+                }
+            }
+            results.add(new DebtUpdateResult(update.id(), true, "Changes saved."));
+        }
+
+        // flushed as batches of hibernate.jdbc.batch_size updates
+        debtRepository.saveAll(changed);
+        debtNoteRepository.saveAll(noteEntities);
+        agentCreditService.recordChanges(before, changed);
+
+        return results;
+    }
+
+    @Transactional
     public String changeAgent(Long id, String agentName, String managerName) {
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(managerName);
+        Optional<ManagerEntity> managerEntity = nameCache.findManager(managerName);
         if (managerEntity.isEmpty()) {
             return "Some error occurred.";
         }
@@ -102,23 +253,25 @@ public class DebtAgentManagerService {
             return "Some error occurred.";
         }
 
-        Optional<AgentEntity> agentEntity = agentRepository.findByAgentName(agentName);
+        Optional<AgentEntity> agentEntity = nameCache.findAgent(agentName);
         if (agentEntity.isEmpty()) {
             return "Some error occurred. Try logging in again.";
         }
 
-        if (debtEntity.get().getAgentEntity().getAgentName().equals(agentName)) {
+        if (debtEntity.get().getAgentEntity() != null && debtEntity.get().getAgentEntity().getAgentName().equals(agentName)) {
             return "No changes to be made.";
         }
 
+        DebtState before = agentCreditService.snapshot(debtEntity.get());
         debtEntity.get().setAgentEntity(agentEntity.get());
         debtRepository.save(debtEntity.get());
+        agentCreditService.recordChange(before, debtEntity.get());
 
         return "Agent changed successfully";
     }
 
     public DebtDTO getSingleDebt(String debtName, String managerName) {
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(managerName);
+        Optional<ManagerEntity> managerEntity = nameCache.findManager(managerName);
         if (managerEntity.isEmpty()) {
             throw new InvalidCredentialException("Some error occurred.");
         }
@@ -133,6 +286,12 @@ public class DebtAgentManagerService {
             return null;
         }
 
+        List<NoteDTO> recent = debtNoteRepository.findNotes(debtEntity.get().getId(), PageRequest.of(0, RECENT_NOTES)).getContent();
+        List<String> notes = new ArrayList<>(recent.size());
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            notes.add(recent.get(i).note());
+        }
+
         return new DebtDTO(
                 debtEntity.get().getId(),
                 debtEntity.get().getDebtName(),
@@ -140,7 +299,21 @@ public class DebtAgentManagerService {
                 debtEntity.get().getManagerEntity() != null ? debtEntity.get().getManagerEntity().getManagerName() : null,
                 debtEntity.get().getRecoveryProbability(),
                 debtEntity.get().getTrustScore(),
-                debtEntity.get().getSightInformation()
+                notes
         );
     }
+
+    /**
+     * Returns why the notes cannot be stored, or null when they can. No notes at all is fine.
+     */
+    private static String checkNotes(List<String> notes) {
+        if (notes == null) return null;
+        for (String note : notes) {
+            if (note == null || note.isBlank()) return "Notes must not be blank.";
+            if (note.length() > DebtNoteEntity.MAX_NOTE_LENGTH) {
+                return "Notes must be at most " + DebtNoteEntity.MAX_NOTE_LENGTH + " characters.";
+            }
+        }
+        return null;
+    }
 }
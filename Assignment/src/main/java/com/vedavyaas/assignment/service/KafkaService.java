@@ -1,101 +1,133 @@
 package com.vedavyaas.assignment.service;
 
+import com.vedavyaas.assignment.model.DebtState;
 import com.vedavyaas.assignment.model.Status;
 import com.vedavyaas.assignment.repository.*;
+import com.vedavyaas.codec.WireCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class KafkaService {
+    private static final Logger logger = LoggerFactory.getLogger(KafkaService.class);
 
-    private final AgentRepository agentRepository;
     private final DebtRepository debtRepository;
-    private final ManagerRepository managerRepository;
+    private final DebtUpsertRepository debtUpsertRepository;
+    private final NameCache nameCache;
+    private final AgentCreditService agentCreditService;
+    private final AssignmentEngine assignmentEngine;
 
-    public KafkaService(AgentRepository agentRepository, DebtRepository debtRepository, ManagerRepository managerRepository) {
-        this.agentRepository = agentRepository;
+    public KafkaService(DebtRepository debtRepository, DebtUpsertRepository debtUpsertRepository, NameCache nameCache,
+                        AgentCreditService agentCreditService, AssignmentEngine assignmentEngine) {
         this.debtRepository = debtRepository;
-        this.managerRepository = managerRepository;
+        this.debtUpsertRepository = debtUpsertRepository;
+        this.nameCache = nameCache;
+        this.agentCreditService = agentCreditService;
+        this.assignmentEngine = assignmentEngine;
     }
 
     @KafkaListener(topics = "agent-topic", groupId = "assignGroup")
-    public void agentMessageReceiver(String message) {
-        Optional<AgentEntity> agentEntity = agentRepository.findByAgentName(message);
+    public void agentMessageReceiver(byte[] message) {
+        String agentName = decode(message, WireCodec.AGENT, WireCodec::readString);
+        if (agentName == null) return;
 
-        if (agentEntity.isEmpty()) {
-            AgentEntity agentEntity1 = new AgentEntity(message);
-            agentRepository.save(agentEntity1);
-        }
+        nameCache.findOrCreateAgent(agentName);
     }
 
-    @KafkaListener(topics = "debt-topic", groupId = "assignGroup")
-    public void debtMessageReceiver(String message) {
+    /**
+     * Batch listener, a poll is deduplicated, its managers are resolved in one go and its debts are
+     * written as one batch of MERGE statements, see {@link DebtUpsertRepository}. A redelivered poll
+     * changes nothing. A record that cannot be decoded is dropped on its own, see {@link #decode}.
+     */
+    @Transactional
+    @KafkaListener(topics = "debt-topic", groupId = "assignGroup", batch = "true")
+    public void debtMessageReceiver(List<byte[]> messages) {
         //debt_name, manager_name
-        String[] input = message.split("EOF");
-        if (input.length != 2) return;
-
-        Optional<DebtEntity> debtEntity = debtRepository.findByDebtName(input[0]);
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(input[1]);
+        Map<String, String> managerByDebt = new LinkedHashMap<>();
+        for (byte[] message : messages) {
+            DebtMessage debt = decode(message, WireCodec.DEBT, input -> new DebtMessage(WireCodec.readString(input), WireCodec.readString(input)));
+            if (debt == null || !named(debt.debtName(), debt.managerName())) continue;
 
-        if (managerEntity.isEmpty()) {
-            ManagerEntity managerEntity1 = new ManagerEntity(input[1]);
-            managerRepository.save(managerEntity1);
-            managerEntity = Optional.of(managerEntity1);
+            managerByDebt.putIfAbsent(debt.debtName(), debt.managerName());
         }
+        if (managerByDebt.isEmpty()) return;
 
-        if (debtEntity.isEmpty()) {
-            DebtEntity debtEntity1 = new DebtEntity(input[0], managerEntity.get());
-            debtRepository.save(debtEntity1);
-        }
+        Map<String, ManagerEntity> managers = nameCache.findOrCreateManagers(managerByDebt.values());
+
+        List<DebtEntity> debts = new ArrayList<>(managerByDebt.size());
+        managerByDebt.forEach((debtName, managerName) -> debts.add(new DebtEntity(debtName, managers.get(managerName))));
+        debtUpsertRepository.mergeDebts(debts);
     }
 
-    @KafkaListener(topics = "debt-prediction-topic", groupId = "assignGroup")
-    public void debtPredictionReceiver(String message) {
+    @Transactional
+    @KafkaListener(topics = "debt-prediction-topic", groupId = "assignGroup", batch = "true")
+    public void debtPredictionReceiver(List<byte[]> messages) {
         //debt_name, manager_name, recoveryProbability, trust_score, nice_value
-        String[] input = message.split("EOF");
-        if (input.length != 5) return;
-
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(input[1]);
-        if (managerEntity.isEmpty()) {
-            ManagerEntity managerEntity1 = new ManagerEntity(input[1]);
-            managerRepository.save(managerEntity1);
-            managerEntity = Optional.of(managerEntity1);
+        Map<String, Prediction> predictions = new LinkedHashMap<>();
+        for (byte[] message : messages) {
+            Prediction prediction = decode(message, WireCodec.DEBT_PREDICTION, input -> new Prediction(
+                    WireCodec.readString(input),
+                    WireCodec.readString(input),
+                    WireCodec.readDouble(input),
+                    WireCodec.readDouble(input),
+                    WireCodec.readInt(input)
+            ));
+            if (prediction == null || !named(prediction.debtName(), prediction.managerName())) continue;
+
+            // the first score of a debt wins, as it does for a debt that is already calculated
+            predictions.putIfAbsent(prediction.debtName(), prediction);
         }
-
-        Optional<DebtEntity> debtEntity = debtRepository.findByDebtName(input[0]);
-        if (debtEntity.isEmpty()) {
-            DebtEntity debtEntity1 = new DebtEntity(
-                    input[0],
-                    managerEntity.get(),
-                    Double.parseDouble(input[2]),
-                    Double.parseDouble(input[3]),
-                    Integer.parseInt(input[4])
-            );
-            debtRepository.save(debtEntity1);
-        } else if (!debtEntity.get().isCalculated()) {
-            debtEntity.get().setCalculated(true);
-            debtEntity.get().setRecoveryProbability(Double.parseDouble(input[2]));
-            debtEntity.get().setTrustScore(Double.parseDouble(input[3]));
-            debtEntity.get().setNiceValue(Integer.parseInt(input[4]));
-
-            debtRepository.save(debtEntity.get());
+        if (predictions.isEmpty()) return;
+
+        Map<String, ManagerEntity> managers = nameCache.findOrCreateManagers(predictions.values().stream().map(Prediction::managerName).toList());
+
+        List<DebtEntity> debts = new ArrayList<>(predictions.size());
+        for (Prediction prediction : predictions.values()) {
+            debts.add(new DebtEntity(
+                    prediction.debtName(),
+                    managers.get(prediction.managerName()),
+                    prediction.recoveryProbability(),
+                    prediction.trustScore(),
+                    prediction.niceValue()
+            ));
         }
+        debtUpsertRepository.mergePredictions(debts);
+        // only scored debts are placed, so this is the one listener that assigns
+        assignmentEngine.assign(predictions.keySet());
     }
 
+    @Transactional
     @KafkaListener(topics = "debt-approval", groupId = "assignGroup")
-    public void receiveApproval(String message) {
+    public void receiveApproval(byte[] message) {
         // debt_name, true/false
-        String[] input = message.split("EOF");
-        Optional<DebtEntity> debtEntity = debtRepository.findByDebtName(input[0]);
+        Approval approval = decode(message, WireCodec.DEBT_APPROVAL, input -> new Approval(WireCodec.readString(input), WireCodec.readBoolean(input)));
+        if (approval == null || approval.debtName() == null) return;
+
+        boolean approved = approval.approved();
+        Optional<DebtEntity> debtEntity = debtRepository.findByDebtName(approval.debtName());
         if (debtEntity.isEmpty()) {
             //ignore
             return;
         }
 
-        if (input[1].equals("true")) {
+        // the outbox relay may deliver an approval twice, the first one sets the completion time
+        if (approved && debtEntity.get().getStatus().equals(Status.APPROVED)) return;
+
+        DebtState before = agentCreditService.snapshot(debtEntity.get());
+
+        if (approved) {
             debtEntity.get().setStatus(Status.APPROVED);
             debtEntity.get().setCompletedAt(Instant.now());
         }
@@ -103,5 +135,35 @@ public class KafkaService {
             if (debtEntity.get().getStatus().equals(Status.APPROVED)) debtEntity.get().setStatus(Status.PENDING);
         }
         debtRepository.save(debtEntity.get());
+        agentCreditService.recordChange(before, debtEntity.get());
+    }
+
+    private record DebtMessage(String debtName, String managerName) {
+    }
+
+    private record Prediction(String debtName, String managerName, double recoveryProbability, double trustScore, int niceValue) {
+    }
+
+    private record Approval(String debtName, boolean approved) {
+    }
+
+    /**
+     * Opens and reads one record, the whole decode inside one try: a malformed or truncated record is
+     * logged and dropped instead of failing, and redelivering, the rest of its poll.
+     */
+    private <T> T decode(byte[] message, byte type, Function<ByteBuffer, T> reader) {
+        try {
+            return reader.apply(WireCodec.open(message, type));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Dropping malformed message: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // debt_name and the manager are NOT NULL, one record without them would fail the whole MERGE batch
+    private boolean named(String debtName, String managerName) {
+        if (debtName != null && managerName != null) return true;
+        logger.warn("Dropping message without debt or manager name: {}, {}", debtName, managerName);
+        return false;
     }
 }
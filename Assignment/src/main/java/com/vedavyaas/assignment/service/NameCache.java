@@ -0,0 +1,148 @@
+package com.vedavyaas.assignment.service;
+
+import com.vedavyaas.assignment.repository.AgentEntity;
+import com.vedavyaas.assignment.repository.AgentRepository;
+import com.vedavyaas.assignment.repository.ManagerEntity;
+import com.vedavyaas.assignment.repository.ManagerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of manager and agent names to their entities. Names are never changed or
+ * deleted, so an entry stays valid once loaded; only names that exist are cached, a miss always goes
+ * to the database. Entities created here are cached once their transaction commits.
+ *
+ * The cached entities are detached and only meant to be referenced from debts or used in queries.
+ * Agent statistics must be read from and written to the repository, never through these instances.
+ */
+@Service
+public class NameCache {
+    private final ManagerRepository managerRepository;
+    private final AgentRepository agentRepository;
+
+    private final Map<String, ManagerEntity> managers = new ConcurrentHashMap<>();
+    private final Map<String, AgentEntity> agents = new ConcurrentHashMap<>();
+
+    private final Counter managerHits;
+    private final Counter managerMisses;
+    private final Counter agentHits;
+    private final Counter agentMisses;
+
+    public NameCache(ManagerRepository managerRepository, AgentRepository agentRepository, MeterRegistry meterRegistry) {
+        this.managerRepository = managerRepository;
+        this.agentRepository = agentRepository;
+
+        this.managerHits = meterRegistry.counter("name.cache.hits", "type", "manager");
+        this.managerMisses = meterRegistry.counter("name.cache.misses", "type", "manager");
+        this.agentHits = meterRegistry.counter("name.cache.hits", "type", "agent");
+        this.agentMisses = meterRegistry.counter("name.cache.misses", "type", "agent");
+        Gauge.builder("name.cache.size", managers, Map::size).tag("type", "manager").register(meterRegistry);
+        Gauge.builder("name.cache.size", agents, Map::size).tag("type", "agent").register(meterRegistry);
+    }
+
+    public Optional<ManagerEntity> findManager(String managerName) {
+        ManagerEntity managerEntity = managers.get(managerName);
+        if (managerEntity != null) {
+            managerHits.increment();
+            return Optional.of(managerEntity);
+        }
+
+        managerMisses.increment();
+        Optional<ManagerEntity> loaded = managerRepository.findByManagerName(managerName);
+        loaded.ifPresent(entity -> managers.put(managerName, entity));
+        return loaded;
+    }
+
+    /**
+     * Resolves every name with one IN query for the ones not cached yet, and creates the missing
+     * managers in one batch.
+     */
+    public Map<String, ManagerEntity> findOrCreateManagers(Collection<String> managerNames) {
+        Map<String, ManagerEntity> resolved = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String name : managerNames) {
+            ManagerEntity managerEntity = managers.get(name);
+            if (managerEntity != null) {
+                resolved.put(name, managerEntity);
+            } else {
+                missing.add(name);
+            }
+        }
+
+        managerHits.increment(resolved.size());
+        if (missing.isEmpty()) return resolved;
+        managerMisses.increment(missing.size());
+
+        for (ManagerEntity managerEntity : managerRepository.findByManagerNameIn(missing)) {
+            resolved.put(managerEntity.getManagerName(), managerEntity);
+            managers.put(managerEntity.getManagerName(), managerEntity);
+            missing.remove(managerEntity.getManagerName());
+        }
+
+        List<ManagerEntity> created = new ArrayList<>();
+        for (String name : missing) {
+            ManagerEntity managerEntity = new ManagerEntity(name);
+            resolved.put(name, managerEntity);
+            created.add(managerEntity);
+        }
+        // flushed right away, the debts of the same poll reference them from plain JDBC statements
+        managerRepository.saveAllAndFlush(created);
+        for (ManagerEntity managerEntity : created) {
+            cacheAfterCommit(managers, managerEntity.getManagerName(), managerEntity);
+        }
+
+        return resolved;
+    }
+
+    public Optional<AgentEntity> findAgent(String agentName) {
+        AgentEntity agentEntity = agents.get(agentName);
+        if (agentEntity != null) {
+            agentHits.increment();
+            return Optional.of(agentEntity);
+        }
+
+        agentMisses.increment();
+        Optional<AgentEntity> loaded = agentRepository.findByAgentName(agentName);
+        loaded.ifPresent(entity -> agents.put(agentName, entity));
+        return loaded;
+    }
+
+    public AgentEntity findOrCreateAgent(String agentName) {
+        Optional<AgentEntity> agentEntity = findAgent(agentName);
+        if (agentEntity.isPresent()) {
+            return agentEntity.get();
+        }
+
+        AgentEntity agentEntity1 = agentRepository.save(new AgentEntity(agentName));
+        cacheAfterCommit(agents, agentName, agentEntity1);
+        return agentEntity1;
+    }
+
+    private static <T> void cacheAfterCommit(Map<String, T> cache, String name, T entity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.put(name, entity);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(name, entity);
+            }
+        });
+    }
+}
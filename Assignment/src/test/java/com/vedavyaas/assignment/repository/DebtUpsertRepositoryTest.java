@@ -0,0 +1,82 @@
+package com.vedavyaas.assignment.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The listeners may see a message more than once, every MERGE has to leave the same single row behind.
+ */
+@SpringBootTest(properties = {"spring.kafka.listener.auto-startup=false", "eureka.client.enabled=false"})
+@Transactional
+class DebtUpsertRepositoryTest {
+    @Autowired
+    private DebtUpsertRepository debtUpsertRepository;
+    @Autowired
+    private ManagerRepository managerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ManagerEntity manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = managerRepository.saveAndFlush(new ManagerEntity("merge-manager"));
+    }
+
+    @Test
+    void redeliveredDebtIsInsertedOnce() {
+        DebtEntity debt = new DebtEntity("merge-debt", manager);
+
+        debtUpsertRepository.mergeDebts(List.of(debt));
+        debtUpsertRepository.mergeDebts(List.of(debt, debt));
+
+        assertEquals(1, count("merge-debt"));
+        assertEquals(false, row("merge-debt").get("calculated"));
+    }
+
+    @Test
+    void redeliveredPredictionKeepsTheFirstScore() {
+        debtUpsertRepository.mergeDebts(List.of(new DebtEntity("merge-scored", manager)));
+
+        debtUpsertRepository.mergePredictions(List.of(new DebtEntity("merge-scored", manager, 0.8, 0.7, 3)));
+        debtUpsertRepository.mergePredictions(List.of(new DebtEntity("merge-scored", manager, 0.1, 0.2, 9)));
+
+        assertEquals(1, count("merge-scored"));
+        Map<String, Object> row = row("merge-scored");
+        assertEquals(true, row.get("calculated"));
+        assertEquals(0.8, row.get("recovery_probability"));
+        assertEquals(3, row.get("nice_value"));
+    }
+
+    @Test
+    void predictionBeforeTheDebtIsNotReset() {
+        DebtEntity prediction = new DebtEntity("merge-early", manager, 0.6, 0.4, 5);
+
+        debtUpsertRepository.mergePredictions(List.of(prediction, prediction));
+        debtUpsertRepository.mergeDebts(List.of(new DebtEntity("merge-early", manager)));
+
+        assertEquals(1, count("merge-early"));
+        Map<String, Object> row = row("merge-early");
+        assertEquals(true, row.get("calculated"));
+        assertEquals(0.6, row.get("recovery_probability"));
+        assertEquals("PENDING", row.get("status"));
+    }
+
+    private int count(String debtName) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM debt_entity WHERE debt_name = ?", Integer.class, debtName);
+    }
+
+    private Map<String, Object> row(String debtName) {
+        return jdbcTemplate.queryForMap(
+                "SELECT calculated, recovery_probability, nice_value, status FROM debt_entity WHERE debt_name = ?", debtName);
+    }
+}
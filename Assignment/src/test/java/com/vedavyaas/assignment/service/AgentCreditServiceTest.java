@@ -0,0 +1,123 @@
+package com.vedavyaas.assignment.service;
+
+import com.vedavyaas.assignment.model.DebtState;
+import com.vedavyaas.assignment.model.Status;
+import com.vedavyaas.assignment.repository.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The relative updates recorded for every kind of change have to end where the grouped reconciliation
+ * over the debts ends.
+ */
+@SpringBootTest(properties = {"spring.kafka.listener.auto-startup=false", "eureka.client.enabled=false"})
+@Transactional
+class AgentCreditServiceTest {
+    private static final Instant CREATED_AT = Instant.parse("2026-01-05T09:30:00Z");
+    private static final long DAY = Duration.ofDays(1).getSeconds();
+
+    @Autowired
+    private AgentCreditService agentCreditService;
+    @Autowired
+    private AgentRepository agentRepository;
+    @Autowired
+    private DebtRepository debtRepository;
+    @Autowired
+    private ManagerRepository managerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deltasMatchTheReconciliation() {
+        ManagerEntity manager = managerRepository.saveAndFlush(new ManagerEntity("credit-manager"));
+        AgentEntity first = agentRepository.saveAndFlush(new AgentEntity("credit-first"));
+        AgentEntity second = agentRepository.saveAndFlush(new AgentEntity("credit-second"));
+        AgentEntity idle = agentRepository.saveAndFlush(new AgentEntity("credit-idle"));
+
+        // assigned and still pending
+        DebtEntity open = debt("credit-open", manager);
+        change(open, debt -> debt.setAgentEntity(first));
+
+        // approved after three days
+        DebtEntity approved = debt("credit-approved", manager);
+        change(approved, debt -> debt.setAgentEntity(first));
+        change(approved, approve(3));
+
+        // completed by the agent, waiting for approval
+        DebtEntity completed = debt("credit-completed", manager);
+        change(completed, debt -> debt.setAgentEntity(first));
+        change(completed, debt -> debt.setStatus(Status.COMPLETED));
+
+        // moved away from the only agent that had it
+        DebtEntity moved = debt("credit-moved", manager);
+        change(moved, debt -> debt.setAgentEntity(idle));
+        change(moved, debt -> debt.setAgentEntity(second));
+
+        // approved, then the approval is withdrawn
+        DebtEntity revoked = debt("credit-revoked", manager);
+        change(revoked, debt -> debt.setAgentEntity(second));
+        change(revoked, approve(5));
+        change(revoked, debt -> debt.setStatus(Status.PENDING));
+
+        // several debts of one agent in a single bulk update
+        DebtEntity bulkFirst = debt("credit-bulk-1", manager);
+        DebtEntity bulkSecond = debt("credit-bulk-2", manager);
+        change(bulkFirst, debt -> debt.setAgentEntity(second));
+        change(bulkSecond, debt -> debt.setAgentEntity(second));
+        List<DebtState> before = List.of(agentCreditService.snapshot(bulkFirst), agentCreditService.snapshot(bulkSecond));
+        approve(2).accept(bulkFirst);
+        approve(4).accept(bulkSecond);
+        agentCreditService.recordChanges(before, List.of(bulkFirst, bulkSecond));
+
+        List<Map<String, Object>> recorded = statistics(first, second, idle);
+        assertEquals(List.of(1, 1, 3 * DAY, 3.0, 0.5), values(recorded.get(0)));
+        assertEquals(List.of(2, 2, 6 * DAY, 3.0, 0.5), values(recorded.get(1)));
+        assertEquals(List.of(0, 0, 0L, 0.0, 0.0), values(recorded.get(2)));
+
+        agentCreditService.agentScoringEngine();
+
+        assertEquals(recorded, statistics(first, second, idle));
+    }
+
+    private DebtEntity debt(String name, ManagerEntity manager) {
+        DebtEntity debt = new DebtEntity(name, manager, 0.5, 0.5, 0);
+        debt.setCreatedAt(CREATED_AT);
+        return debtRepository.saveAndFlush(debt);
+    }
+
+    private void change(DebtEntity debt, Consumer<DebtEntity> change) {
+        DebtState before = agentCreditService.snapshot(debt);
+        change.accept(debt);
+        agentCreditService.recordChange(before, debt);
+    }
+
+    private static Consumer<DebtEntity> approve(int days) {
+        return debt -> {
+            debt.setStatus(Status.APPROVED);
+            debt.setCompletedAt(CREATED_AT.plus(Duration.ofDays(days)));
+        };
+    }
+
+    private List<Map<String, Object>> statistics(AgentEntity... agents) {
+        return jdbcTemplate.queryForList(
+                "SELECT cases_pending, cases_solved, total_resolution_seconds, average_resolution_time, success_rate FROM agent_entity " +
+                        "WHERE id IN (?, ?, ?) ORDER BY id",
+                agents[0].getId(), agents[1].getId(), agents[2].getId());
+    }
+
+    private static List<Object> values(Map<String, Object> statistics) {
+        return List.of(statistics.get("cases_pending"), statistics.get("cases_solved"),
+                statistics.get("total_resolution_seconds"), statistics.get("average_resolution_time"), statistics.get("success_rate"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.vedavyaas.assignment.service;
+
+import com.vedavyaas.assignment.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"spring.kafka.listener.auto-startup=false", "eureka.client.enabled=false"})
+@Transactional
+class AssignmentEngineTest {
+    @Autowired
+    private DebtRepository debtRepository;
+    @Autowired
+    private DebtUpsertRepository debtUpsertRepository;
+    @Autowired
+    private AgentRepository agentRepository;
+    @Autowired
+    private ManagerRepository managerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ManagerEntity manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = managerRepository.saveAndFlush(new ManagerEntity("engine-manager"));
+    }
+
+    @Test
+    void placesDebtsOnTheLeastLoadedAgentWeightedBySuccessRate() {
+        AgentEntity plain = agent("plain", 0, 0);
+        AgentEntity strong = agent("strong", 0, 3);
+        List<String> names = debts("heap", 6);
+
+        assertEquals(6, engine(500, 1000).assign(names));
+
+        // strong solved everything it had, so it counts its cases at half weight; on equal load the lower id wins, so the best debt goes to plain
+        assertEquals(plain.getId(), agentOf("heap-0"));
+        assertEquals(2, assignedTo(plain));
+        assertEquals(4, assignedTo(strong));
+        assertEquals(2, pending(plain));
+        assertEquals(4, pending(strong));
+    }
+
+    @Test
+    void sweepKeepsTheCapAcrossPages() {
+        AgentEntity agent = agent("capped", 0, 0);
+        AgentEntity full = agent("full", 3, 0);
+        debts("sweep", 5);
+
+        // pages of two debts in one transaction, each page has to see what the previous ones assigned
+        engine(3, 2).sweep();
+
+        assertEquals(3, assignedTo(agent));
+        assertEquals(3, pending(agent));
+        assertEquals(0, assignedTo(full));
+        assertEquals(3, pending(full));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM debt_entity WHERE debt_name LIKE 'sweep-%' AND agent_entity_id IS NULL", Integer.class));
+    }
+
+    @Test
+    void skipsADebtAssignedConcurrently() {
+        AgentEntity agent = agent("local", 0, 0);
+        AgentEntity other = agent("other", 500, 0);
+        List<String> names = debts("race", 3);
+        Long contested = debtRepository.findByDebtName("race-0").orElseThrow().getId();
+
+        DebtUpsertRepository racing = new DebtUpsertRepository(jdbcTemplate) {
+            @Override
+            public int[] assignAgents(List<Object[]> rows) {
+                // another instance assigns the best debt between the read of the candidates and this update
+                super.assignAgents(Collections.singletonList(new Object[]{other.getId(), contested}));
+                return super.assignAgents(rows);
+            }
+        };
+        AssignmentEngine engine = new AssignmentEngine(debtRepository, racing, agentRepository, new SimpleMeterRegistry(), 500, 1000);
+
+        assertEquals(2, engine.assign(names));
+        assertEquals(other.getId(), agentOf("race-0"));
+        assertEquals(2, assignedTo(agent));
+        assertEquals(2, pending(agent));
+    }
+
+    private AssignmentEngine engine(int maxPending, int sweepSize) {
+        return new AssignmentEngine(debtRepository, debtUpsertRepository, agentRepository, new SimpleMeterRegistry(), maxPending, sweepSize);
+    }
+
+    // statistics as AgentRepository keeps them
+    private AgentEntity agent(String name, int pending, int solved) {
+        AgentEntity agent = new AgentEntity(name);
+        agent.setCasesPending(pending);
+        agent.setCasesSolved(solved);
+        agent.setSuccessRate(pending + solved > 0 ? (double) solved / (pending + solved) : 0.0);
+        return agentRepository.saveAndFlush(agent);
+    }
+
+    // scored, pending and unassigned; the lower the index, the better the debt
+    private List<String> debts(String prefix, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = prefix + "-" + i;
+            debtRepository.saveAndFlush(new DebtEntity(name, manager, 0.9 - i * 0.1, 0.5, 0));
+            names.add(name);
+        }
+        return names;
+    }
+
+    private Long agentOf(String debtName) {
+        return jdbcTemplate.queryForObject("SELECT agent_entity_id FROM debt_entity WHERE debt_name = ?", Long.class, debtName);
+    }
+
+    private int assignedTo(AgentEntity agent) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM debt_entity WHERE agent_entity_id = ?", Integer.class, agent.getId());
+    }
+
+    private int pending(AgentEntity agent) {
+        return jdbcTemplate.queryForObject("SELECT cases_pending FROM agent_entity WHERE id = ?", Integer.class, agent.getId());
+    }
+}
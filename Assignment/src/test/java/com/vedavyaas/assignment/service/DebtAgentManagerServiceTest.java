@@ -0,0 +1,102 @@
+package com.vedavyaas.assignment.service;
+
+import com.vedavyaas.assignment.model.DebtUpdate;
+import com.vedavyaas.assignment.model.DebtUpdateResult;
+import com.vedavyaas.assignment.model.InvalidCredentialException;
+import com.vedavyaas.assignment.model.Status;
+import com.vedavyaas.assignment.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {"spring.kafka.listener.auto-startup=false", "eureka.client.enabled=false"})
+@Transactional
+class DebtAgentManagerServiceTest {
+    @Autowired
+    private DebtAgentManagerService debtAgentManagerService;
+    @Autowired
+    private DebtRepository debtRepository;
+    @Autowired
+    private DebtNoteRepository debtNoteRepository;
+    @Autowired
+    private AgentRepository agentRepository;
+    @Autowired
+    private ManagerRepository managerRepository;
+
+    private ManagerEntity manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = managerRepository.saveAndFlush(new ManagerEntity("service-manager"));
+    }
+
+    @Test
+    void bulkUpdateRejectsOnlyTheBadItems() {
+        // NameCache outlives the rolled back test transactions, so every test uses its own agent
+        AgentEntity agent = agentRepository.saveAndFlush(new AgentEntity("bulk-agent"));
+        DebtEntity good = debt("bulk-good", agent);
+        DebtEntity nullNote = debt("bulk-null-note", agent);
+        DebtEntity longNote = debt("bulk-long-note", agent);
+        DebtEntity blankNote = debt("bulk-blank-note", agent);
+
+        List<DebtUpdateResult> results = debtAgentManagerService.bulkUpdate(Arrays.asList(
+                new DebtUpdate(good.getId(), Status.COMPLETED, List.of("Customer agreed to a plan.")),
+                null,
+                new DebtUpdate(nullNote.getId(), null, Arrays.asList("Called.", null)),
+                new DebtUpdate(longNote.getId(), Status.COMPLETED, List.of("x".repeat(DebtNoteEntity.MAX_NOTE_LENGTH + 1))),
+                new DebtUpdate(blankNote.getId(), null, List.of("  "))
+        ), agent.getAgentName());
+
+        assertEquals(List.of(true, false, false, false, false), results.stream().map(DebtUpdateResult::success).toList());
+        assertEquals(Status.COMPLETED, debtRepository.findById(good.getId()).orElseThrow().getStatus());
+        assertEquals(Status.PENDING, debtRepository.findById(longNote.getId()).orElseThrow().getStatus());
+        assertEquals(1, notes(good));
+        assertEquals(0, notes(nullNote));
+        assertEquals(0, notes(longNote));
+        assertEquals(0, notes(blankNote));
+    }
+
+    @Test
+    void bulkUpdateRejectsAMissingOrEmptyList() {
+        AgentEntity agent = agentRepository.saveAndFlush(new AgentEntity("bulk-empty-agent"));
+
+        assertThrows(InvalidCredentialException.class, () -> debtAgentManagerService.bulkUpdate(null, agent.getAgentName()));
+        assertThrows(InvalidCredentialException.class, () -> debtAgentManagerService.bulkUpdate(List.of(), agent.getAgentName()));
+    }
+
+    @Test
+    void addNotesRejectsInvalidNotesAndStoresNothing() {
+        AgentEntity agent = agentRepository.saveAndFlush(new AgentEntity("notes-agent"));
+        DebtEntity debt = debt("notes-debt", agent);
+
+        assertThrows(InvalidCredentialException.class,
+                () -> debtAgentManagerService.addNotes(debt.getId(), Arrays.asList("Called.", null), agent.getAgentName()));
+        assertThrows(InvalidCredentialException.class,
+                () -> debtAgentManagerService.addNotes(debt.getId(), List.of("Called.", " "), agent.getAgentName()));
+        assertThrows(InvalidCredentialException.class,
+                () -> debtAgentManagerService.addNotes(debt.getId(), List.of("x".repeat(DebtNoteEntity.MAX_NOTE_LENGTH + 1)), agent.getAgentName()));
+        assertEquals(0, notes(debt));
+
+        debtAgentManagerService.addNotes(debt.getId(), List.of("x".repeat(DebtNoteEntity.MAX_NOTE_LENGTH)), agent.getAgentName());
+        assertEquals(1, notes(debt));
+    }
+
+    private DebtEntity debt(String name, AgentEntity agent) {
+        DebtEntity debt = new DebtEntity(name, manager, 0.5, 0.5, 0);
+        debt.setAgentEntity(agent);
+        return debtRepository.saveAndFlush(debt);
+    }
+
+    private long notes(DebtEntity debt) {
+        return debtNoteRepository.findNotes(debt.getId(), PageRequest.of(0, 10)).getTotalElements();
+    }
+}
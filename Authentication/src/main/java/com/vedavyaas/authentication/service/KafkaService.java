@@ -3,6 +3,7 @@ package com.vedavyaas.authentication.service;
 import com.vedavyaas.authentication.model.Role;
 import com.vedavyaas.authentication.repository.UserEntity;
 import com.vedavyaas.authentication.repository.UserRepository;
+import com.vedavyaas.codec.WireCodec;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -13,10 +14,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class KafkaService {
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final UserRepository userRepository;
 
-    public KafkaService(KafkaTemplate<String, String> kafkaTemplate, UserRepository userRepository) {
+    public KafkaService(KafkaTemplate<String, byte[]> kafkaTemplate, UserRepository userRepository) {
         this.kafkaTemplate = kafkaTemplate;
         this.userRepository = userRepository;
     }
@@ -30,7 +31,7 @@ public class KafkaService {
         if (userEntities.isEmpty()) return;
 
         for (var agent : userEntities) {
-            kafkaTemplate.send("agent-topic", agent.getName());
+            kafkaTemplate.send("agent-topic", agent.getName(), WireCodec.encodeAgent(agent.getName()));
             agent.setSent(true);
         }
 
@@ -0,0 +1,220 @@
+package com.vedavyaas.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary wire format shared by every service that talks over Kafka. Every service
+ * depends on this module, so producers and consumers always build against the same
+ * schema. Changing the layout of an existing type must bump {@link #VERSION};
+ * a new type only needs a new type id.
+ *
+ * <pre>
+ * header                : magic (0xDC) | version (u8) | type (u8)
+ * string                : length (u16, 0xFFFF = null) | utf-8 bytes
+ *
+ * DEBT            (1)   : debtName string | managerName string                              debt-topic
+ * DEBT_REQUEST    (2)   : debtName string | managerName string | principalAmount f64
+ *                         | outstandingAmount f64 | dueDate epoch day i64                     debt-request-topic
+ * DEBT_PREDICTION (3)   : debtName string | managerName string | recoveryProbability f64
+ *                         | trustScore f64 | niceValue i32                                    debt-prediction-topic
+ * DEBT_APPROVAL   (4)   : debtName string | approved u8                                       debt-approval
+ * AGENT           (5)   : agentName string                                                    agent-topic
+ * DEBT_OUTCOME    (6)   : debtName string | managerName string | principalAmount f64
+ *                         | outstandingAmount f64 (at closing)                                debt-outcome-topic
+ * </pre>
+ *
+ * Encoders size the output exactly and write into a single array. Decoders wrap the
+ * received array, {@link #open} validates the header and the read methods walk the fields in order.
+ * A bad header and a message shorter than its fields both fail with IllegalArgumentException.
+ */
+public final class WireCodec {
+    public static final byte MAGIC = (byte) 0xDC;
+    public static final byte VERSION = 1;
+
+    public static final byte DEBT = 1;
+    public static final byte DEBT_REQUEST = 2;
+    public static final byte DEBT_PREDICTION = 3;
+    public static final byte DEBT_APPROVAL = 4;
+    public static final byte AGENT = 5;
+    public static final byte DEBT_OUTCOME = 6;
+
+    private static final int HEADER_SIZE = 3;
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    private WireCodec() {
+    }
+
+    public static byte[] encodeDebt(String debtName, String managerName) {
+        ByteBuffer buffer = header(DEBT, stringSize(debtName) + stringSize(managerName));
+        putString(buffer, debtName);
+        putString(buffer, managerName);
+        return buffer.array();
+    }
+
+    public static byte[] encodeDebtRequest(String debtName, String managerName, double principalAmount, double outstandingAmount, long dueEpochDay) {
+        ByteBuffer buffer = header(DEBT_REQUEST, stringSize(debtName) + stringSize(managerName) + 8 + 8 + 8);
+        putString(buffer, debtName);
+        putString(buffer, managerName);
+        buffer.putDouble(principalAmount);
+        buffer.putDouble(outstandingAmount);
+        buffer.putLong(dueEpochDay);
+        return buffer.array();
+    }
+
+    public static byte[] encodeDebtPrediction(String debtName, String managerName, double recoveryProbability, double trustScore, int niceValue) {
+        ByteBuffer buffer = header(DEBT_PREDICTION, stringSize(debtName) + stringSize(managerName) + 8 + 8 + 4);
+        putString(buffer, debtName);
+        putString(buffer, managerName);
+        buffer.putDouble(recoveryProbability);
+        buffer.putDouble(trustScore);
+        buffer.putInt(niceValue);
+        return buffer.array();
+    }
+
+    public static byte[] encodeDebtApproval(String debtName, boolean approved) {
+        ByteBuffer buffer = header(DEBT_APPROVAL, stringSize(debtName) + 1);
+        putString(buffer, debtName);
+        buffer.put((byte) (approved ? 1 : 0));
+        return buffer.array();
+    }
+
+    public static byte[] encodeDebtOutcome(String debtName, String managerName, double principalAmount, double outstandingAmount) {
+        ByteBuffer buffer = header(DEBT_OUTCOME, stringSize(debtName) + stringSize(managerName) + 8 + 8);
+        putString(buffer, debtName);
+        putString(buffer, managerName);
+        buffer.putDouble(principalAmount);
+        buffer.putDouble(outstandingAmount);
+        return buffer.array();
+    }
+
+    public static byte[] encodeAgent(String agentName) {
+        ByteBuffer buffer = header(AGENT, stringSize(agentName));
+        putString(buffer, agentName);
+        return buffer.array();
+    }
+
+    /**
+     * Validates the header of a received message and returns a buffer positioned at its first field.
+     */
+    public static ByteBuffer open(byte[] message, byte expectedType) {
+        if (message == null || message.length < HEADER_SIZE || message[0] != MAGIC) {
+            throw new IllegalArgumentException("Not a wire codec message.");
+        }
+        if (message[1] < 1 || message[1] > VERSION) {
+            throw new IllegalArgumentException("Unsupported wire codec version " + message[1] + ".");
+        }
+        if (message[2] != expectedType) {
+            throw new IllegalArgumentException("Expected message type " + expectedType + " but got " + message[2] + ".");
+        }
+
+        return ByteBuffer.wrap(message, HEADER_SIZE, message.length - HEADER_SIZE);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        require(buffer, 2);
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH) return null;
+        require(buffer, length);
+
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public static double readDouble(ByteBuffer buffer) {
+        require(buffer, 8);
+        return buffer.getDouble();
+    }
+
+    public static long readLong(ByteBuffer buffer) {
+        require(buffer, 8);
+        return buffer.getLong();
+    }
+
+    public static int readInt(ByteBuffer buffer) {
+        require(buffer, 4);
+        return buffer.getInt();
+    }
+
+    public static boolean readBoolean(ByteBuffer buffer) {
+        require(buffer, 1);
+        return buffer.get() != 0;
+    }
+
+    private static void require(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() < bytes) {
+            throw new IllegalArgumentException("Truncated wire codec message.");
+        }
+    }
+
+    private static ByteBuffer header(byte type, int payloadSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+        buffer.put(MAGIC).put(VERSION).put(type);
+        return buffer;
+    }
+
+    private static int stringSize(String value) {
+        return 2 + (value == null ? 0 : utf8Length(value));
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_LENGTH);
+            return;
+        }
+
+        int length = utf8Length(value);
+        if (length >= NULL_LENGTH) {
+            throw new IllegalArgumentException("String too long for wire codec.");
+        }
+        buffer.putShort((short) length);
+
+        // Encodes straight into the output array instead of allocating via String.getBytes.
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    buffer.put((byte) '?');
+                }
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 1;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,84 @@
+package com.vedavyaas.codec;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a debt-request-topic message in the old "EOF" delimited string format against {@link WireCodec}.
+ * Run in the Codec module with: mvn test-compile exec:exec [-Djmh.include=WireCodecBenchmark], or the main method from the IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireCodecBenchmark {
+    private final String debtName = "loan-2026-000123";
+    private final String managerName = "manager.one";
+    private final double principalAmount = 125_000.50;
+    private final double outstandingAmount = 48_250.75;
+    private final LocalDate dueDate = LocalDate.of(2027, 3, 14);
+
+    private byte[] stringMessage;
+    private byte[] binaryMessage;
+
+    @Setup
+    public void setup() {
+        stringMessage = encodeString();
+        binaryMessage = encodeBinary();
+    }
+
+    @Benchmark
+    public byte[] encodeString() {
+        SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy");
+        Date date = java.sql.Date.valueOf(dueDate);
+        String message = debtName
+                + "EOF" + managerName
+                + "EOF" + principalAmount
+                + "EOF" + outstandingAmount
+                + "EOF" + formatter.format(date);
+        return message.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return WireCodec.encodeDebtRequest(debtName, managerName, principalAmount, outstandingAmount, dueDate.toEpochDay());
+    }
+
+    @Benchmark
+    public void decodeString(Blackhole blackhole) throws ParseException {
+        String[] input = new String(stringMessage, StandardCharsets.UTF_8).split("EOF");
+        SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy");
+        blackhole.consume(input[0]);
+        blackhole.consume(input[1]);
+        blackhole.consume(Double.parseDouble(input[2]));
+        blackhole.consume(Double.parseDouble(input[3]));
+        blackhole.consume(formatter.parse(input[4]));
+    }
+
+    @Benchmark
+    public void decodeBinary(Blackhole blackhole) {
+        ByteBuffer input = WireCodec.open(binaryMessage, WireCodec.DEBT_REQUEST);
+        blackhole.consume(WireCodec.readString(input));
+        blackhole.consume(WireCodec.readString(input));
+        blackhole.consume(WireCodec.readDouble(input));
+        blackhole.consume(WireCodec.readDouble(input));
+        blackhole.consume(LocalDate.ofEpochDay(WireCodec.readLong(input)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WireCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
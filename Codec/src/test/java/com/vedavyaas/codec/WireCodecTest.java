@@ -0,0 +1,174 @@
+package com.vedavyaas.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireCodecTest {
+
+    @Test
+    void debtRoundTrip() {
+        ByteBuffer input = WireCodec.open(WireCodec.encodeDebt("loan-1", "manager.one"), WireCodec.DEBT);
+
+        assertEquals("loan-1", WireCodec.readString(input));
+        assertEquals("manager.one", WireCodec.readString(input));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void debtRequestRoundTrip() {
+        byte[] message = WireCodec.encodeDebtRequest("loan-1", "manager.one", 125_000.50, 48_250.75, 20_000L);
+        ByteBuffer input = WireCodec.open(message, WireCodec.DEBT_REQUEST);
+
+        assertEquals("loan-1", WireCodec.readString(input));
+        assertEquals("manager.one", WireCodec.readString(input));
+        assertEquals(125_000.50, WireCodec.readDouble(input));
+        assertEquals(48_250.75, WireCodec.readDouble(input));
+        assertEquals(20_000L, WireCodec.readLong(input));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void debtPredictionRoundTrip() {
+        byte[] message = WireCodec.encodeDebtPrediction("loan-1", "manager.one", 0.83, 0.41, -7);
+        ByteBuffer input = WireCodec.open(message, WireCodec.DEBT_PREDICTION);
+
+        assertEquals("loan-1", WireCodec.readString(input));
+        assertEquals("manager.one", WireCodec.readString(input));
+        assertEquals(0.83, WireCodec.readDouble(input));
+        assertEquals(0.41, WireCodec.readDouble(input));
+        assertEquals(-7, WireCodec.readInt(input));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void debtApprovalRoundTrip() {
+        ByteBuffer approved = WireCodec.open(WireCodec.encodeDebtApproval("loan-1", true), WireCodec.DEBT_APPROVAL);
+        assertEquals("loan-1", WireCodec.readString(approved));
+        assertTrue(WireCodec.readBoolean(approved));
+        assertFalse(approved.hasRemaining());
+
+        ByteBuffer rejected = WireCodec.open(WireCodec.encodeDebtApproval("loan-1", false), WireCodec.DEBT_APPROVAL);
+        assertEquals("loan-1", WireCodec.readString(rejected));
+        assertFalse(WireCodec.readBoolean(rejected));
+    }
+
+    @Test
+    void agentRoundTrip() {
+        ByteBuffer input = WireCodec.open(WireCodec.encodeAgent("agent.one"), WireCodec.AGENT);
+
+        assertEquals("agent.one", WireCodec.readString(input));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void debtOutcomeRoundTrip() {
+        byte[] message = WireCodec.encodeDebtOutcome("loan-1", "manager.one", 10_000.0, 0.0);
+        ByteBuffer input = WireCodec.open(message, WireCodec.DEBT_OUTCOME);
+
+        assertEquals("loan-1", WireCodec.readString(input));
+        assertEquals("manager.one", WireCodec.readString(input));
+        assertEquals(10_000.0, WireCodec.readDouble(input));
+        assertEquals(0.0, WireCodec.readDouble(input));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void nullAndEmptyStrings() {
+        ByteBuffer input = WireCodec.open(WireCodec.encodeDebt(null, ""), WireCodec.DEBT);
+
+        assertNull(WireCodec.readString(input));
+        assertEquals("", WireCodec.readString(input));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void nonAsciiStrings() {
+        // two, three and four byte sequences: Latin-1, currency signs, CJK, emoji and musical symbol surrogate pairs
+        String[] values = {"Zo\u00EB \u00C5ngstr\u00F6m", "\u20AC 1.000 \u20B9 500", "\u503A\u52A1-\u65E5\u672C\u8A9E", "grinning \uD83D\uDE00 and \uD834\uDD1E"};
+
+        for (String value : values) {
+            byte[] message = WireCodec.encodeAgent(value);
+            // header, length, then exactly the bytes String.getBytes would produce
+            assertEquals(3 + 2 + value.getBytes(StandardCharsets.UTF_8).length, message.length, value);
+            assertEquals(value, WireCodec.readString(WireCodec.open(message, WireCodec.AGENT)));
+        }
+    }
+
+    @Test
+    void unpairedSurrogateIsReplaced() {
+        String value = "a\uD800b\uDC00c";
+        ByteBuffer input = WireCodec.open(WireCodec.encodeAgent(value), WireCodec.AGENT);
+
+        assertEquals("a?b?c", WireCodec.readString(input));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void longestStringFitsAndLongerIsRejected() {
+        String longest = "x".repeat(0xFFFE);
+        assertEquals(longest, WireCodec.readString(WireCodec.open(WireCodec.encodeAgent(longest), WireCodec.AGENT)));
+
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.encodeAgent("x".repeat(0xFFFF)));
+    }
+
+    @Test
+    void truncatedMessageIsRejected() {
+        byte[] message = WireCodec.encodeDebtRequest("loan-1", "manager.one", 1.0, 2.0, 3L);
+
+        ByteBuffer shortLong = WireCodec.open(Arrays.copyOf(message, message.length - 1), WireCodec.DEBT_REQUEST);
+        WireCodec.readString(shortLong);
+        WireCodec.readString(shortLong);
+        WireCodec.readDouble(shortLong);
+        WireCodec.readDouble(shortLong);
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.readLong(shortLong));
+
+        // cut inside the first string
+        ByteBuffer shortString = WireCodec.open(Arrays.copyOf(message, 3 + 2 + 3), WireCodec.DEBT_REQUEST);
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.readString(shortString));
+
+        // cut inside the length of the first string
+        ByteBuffer shortLength = WireCodec.open(Arrays.copyOf(message, 4), WireCodec.DEBT_REQUEST);
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.readString(shortLength));
+
+        ByteBuffer noFlag = WireCodec.open(Arrays.copyOf(WireCodec.encodeDebtApproval("loan-1", true), 3 + 2 + 6), WireCodec.DEBT_APPROVAL);
+        WireCodec.readString(noFlag);
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.readBoolean(noFlag));
+
+        ByteBuffer noNiceValue = WireCodec.open(Arrays.copyOf(WireCodec.encodeDebtPrediction("d", "m", 0.1, 0.2, 3), 3 + 3 + 3 + 16 + 2), WireCodec.DEBT_PREDICTION);
+        WireCodec.readString(noNiceValue);
+        WireCodec.readString(noNiceValue);
+        WireCodec.readDouble(noNiceValue);
+        WireCodec.readDouble(noNiceValue);
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.readInt(noNiceValue));
+    }
+
+    @Test
+    void badHeaderIsRejected() {
+        byte[] message = WireCodec.encodeAgent("agent.one");
+
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.open(null, WireCodec.AGENT));
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.open(new byte[]{WireCodec.MAGIC, WireCodec.VERSION}, WireCodec.AGENT));
+
+        byte[] wrongMagic = message.clone();
+        wrongMagic[0] = 'E';
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.open(wrongMagic, WireCodec.AGENT));
+
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.open(message, WireCodec.DEBT));
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        byte[] message = WireCodec.encodeAgent("agent.one");
+
+        for (byte version : new byte[]{0, WireCodec.VERSION + 1, (byte) 0x80, (byte) 0xFF}) {
+            byte[] other = message.clone();
+            other[1] = version;
+            assertThrows(IllegalArgumentException.class, () -> WireCodec.open(other, WireCodec.AGENT), "version " + (version & 0xFF));
+        }
+    }
+}
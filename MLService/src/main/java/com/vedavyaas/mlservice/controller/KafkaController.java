@@ -1,37 +1,126 @@
 package com.vedavyaas.mlservice.controller;
 
+import com.vedavyaas.codec.WireCodec;
+import com.vedavyaas.mlservice.core.ModelTrainingService;
+import com.vedavyaas.mlservice.core.OnlineLearningService;
 import com.vedavyaas.mlservice.core.Orchestrator;
 import com.vedavyaas.mlservice.model.DebtModel;
 import com.vedavyaas.mlservice.model.PredictionModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 @Service
 public class KafkaController {
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private static final String REQUEST_LISTENER = "debt-request-listener";
+    private static final String OUTCOME_LISTENER = "debt-outcome-listener";
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final Orchestrator orchestrator;
+    private final OnlineLearningService onlineLearningService;
+    private final ModelTrainingService modelTrainingService;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final Logger logger = LoggerFactory.getLogger(KafkaController.class);
 
-    public KafkaController(KafkaTemplate<String, String> kafkaTemplate, Orchestrator orchestrator) {
+    public KafkaController(KafkaTemplate<String, byte[]> kafkaTemplate, Orchestrator orchestrator, OnlineLearningService onlineLearningService,
+                           ModelTrainingService modelTrainingService, KafkaListenerEndpointRegistry listenerRegistry) {
         this.kafkaTemplate = kafkaTemplate;
         this.orchestrator = orchestrator;
+        this.onlineLearningService = onlineLearningService;
+        this.modelTrainingService = modelTrainingService;
+        this.listenerRegistry = listenerRegistry;
+    }
+
+    /**
+     * The listeners are created stopped and only start polling once a model is served, so no consumer
+     * thread waits for training; until then the records stay in Kafka.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void startListeners() {
+        modelTrainingService.whenReady(() -> {
+            listenerRegistry.getListenerContainer(REQUEST_LISTENER).start();
+            listenerRegistry.getListenerContainer(OUTCOME_LISTENER).start();
+        });
     }
 
-    @KafkaListener(topics = "debt-request-topic", groupId = "mlGroup")
-    public void receiveMessage(String message) throws ParseException {
+    /**
+     * Batch listener, each poll (up to max-poll-records, or whatever arrived within fetch.max.wait.ms)
+     * is scored with one forward pass. A record that cannot be decoded is logged and left out, the rest
+     * of the poll is still scored.
+     */
+    @KafkaListener(id = REQUEST_LISTENER, topics = "debt-request-topic", groupId = "mlGroup", batch = "true", autoStartup = "false")
+    public void receiveMessages(List<byte[]> messages) {
+        List<DebtModel> debtModels = new ArrayList<>(messages.size());
+        for (byte[] message : messages) {
+            try {
+                debtModels.add(toDebtModel(message));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Dropping malformed debt request: {}", e.getMessage());
+            }
+        }
+
+        orchestrator.calculateScores(debtModels);
+    }
+
+    @KafkaListener(id = OUTCOME_LISTENER, topics = "debt-outcome-topic", groupId = "mlGroup", batch = "true", autoStartup = "false")
+    public void receiveOutcomes(List<byte[]> messages) {
+        for (byte[] message : messages) {
+            // debt_name, manager_name, principal_amount, outstanding_amount
+            String debtName;
+            double principalAmount;
+            double outstandingAmount;
+            try {
+                ByteBuffer input = WireCodec.open(message, WireCodec.DEBT_OUTCOME);
+                debtName = WireCodec.readString(input);
+                WireCodec.readString(input);
+                principalAmount = WireCodec.readDouble(input);
+                outstandingAmount = WireCodec.readDouble(input);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Dropping malformed debt outcome: {}", e.getMessage());
+                continue;
+            }
+            onlineLearningService.recordOutcome(debtName, principalAmount, outstandingAmount);
+        }
+    }
+
+    private DebtModel toDebtModel(byte[] message) {
         //debt_name, manager_name, principal_amount, outstanding_amount, due_date
-        String[] input = message.split("EOF");
-        SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy");
-        DebtModel debtModel = new DebtModel(input[0], input[1], Double.parseDouble(input[2]), Double.parseDouble(input[3]), formatter.parse(input[4]));
+        ByteBuffer input = WireCodec.open(message, WireCodec.DEBT_REQUEST);
+        return new DebtModel(
+                WireCodec.readString(input),
+                WireCodec.readString(input),
+                WireCodec.readDouble(input),
+                WireCodec.readDouble(input),
+                Date.from(LocalDate.ofEpochDay(WireCodec.readLong(input)).atStartOfDay(ZoneId.systemDefault()).toInstant())
+        );
+    }
 
-        orchestrator.calculateScore(debtModel);
+    public void sendMessages(List<PredictionModel> predictionModels) {
+        for (PredictionModel predictionModel : predictionModels) {
+            sendMessage(predictionModel);
+        }
     }
 
     public void sendMessage(PredictionModel predictionModel) {
-        String message = predictionModel.debtName() + "EOF" + predictionModel.managerName() + "EOF" + predictionModel.recoveryProbability() + "EOF" + predictionModel.trustScore() + "EOF" + predictionModel.niceValue();
-        kafkaTemplate.send("debt-prediction-topic", message);
+        byte[] message = WireCodec.encodeDebtPrediction(
+                predictionModel.debtName(),
+                predictionModel.managerName(),
+                predictionModel.recoveryProbability(),
+                predictionModel.trustScore(),
+                predictionModel.niceValue()
+        );
+        kafkaTemplate.send("debt-prediction-topic", predictionModel.debtName(), message);
     }
 }
@@ -0,0 +1,35 @@
+package com.vedavyaas.mlservice.controller;
+
+import com.vedavyaas.mlservice.core.ModelTrainingService;
+import com.vedavyaas.mlservice.model.ModelStatusDTO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Internal endpoints to inspect the served model and retrain it without downtime.
+ * MLService is not routed through the gateway.
+ */
+@RestController
+@RequestMapping("/api/ml/model")
+public class ModelController {
+
+    private final ModelTrainingService modelTrainingService;
+
+    public ModelController(ModelTrainingService modelTrainingService) {
+        this.modelTrainingService = modelTrainingService;
+    }
+
+    @GetMapping
+    public ResponseEntity<ModelStatusDTO> getStatus() {
+        return ResponseEntity.ok(modelTrainingService.getStatus());
+    }
+
+    @PostMapping("/retrain")
+    public ResponseEntity<ModelStatusDTO> retrain() {
+        modelTrainingService.retrain();
+        return ResponseEntity.accepted().body(modelTrainingService.getStatus());
+    }
+}
@@ -1,6 +1,7 @@
 package com.vedavyaas.mlservice.core;
 
 import com.vedavyaas.mlservice.model.PreparedData;
+import com.vedavyaas.mlservice.model.StreamingData;
 import org.datavec.api.records.reader.RecordReader;
 import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
 import org.datavec.api.split.InputStreamInputSplit;
@@ -12,10 +13,17 @@ import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
 import org.nd4j.linalg.factory.Nd4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -32,6 +40,56 @@ public class CSVVectorService {
 
     private final Logger logger = LoggerFactory.getLogger(CSVVectorService.class);
 
+    private final String dataPath;
+    private final int chunkRows;
+
+    public CSVVectorService(@Value("${ml.training.data-path:}") String dataPath,
+                            @Value("${ml.training.chunk-rows:65536}") int chunkRows) {
+        this.dataPath = dataPath;
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Streaming counterpart of {@link #getPreparedDataSet()} for files that do not fit in memory.
+     *
+     * The source is {@code ml.training.data-path} when set (a training CSV, or outcomes exported from the
+     * Assignment database in the same column order), otherwise the bundled sample. The normalizer is fitted
+     * with one pass over the training rows and then applied to each batch as it is read.
+     */
+    public StreamingData openTrainingData(int batchSize) {
+        TrainingDataIterator trainingData = new TrainingDataIterator(this::openSource, batchSize, chunkRows, false);
+        TrainingDataIterator validationData = new TrainingDataIterator(this::openSource, batchSize, chunkRows, true);
+
+        NormalizerStandardize normalizer = new NormalizerStandardize();
+        normalizer.fitLabel(true);
+        normalizer.fit(trainingData);
+        trainingData.reset();
+
+        trainingData.setPreProcessor(normalizer);
+        validationData.setPreProcessor(normalizer);
+
+        return new StreamingData(trainingData, validationData, normalizer);
+    }
+
+    private BufferedReader openSource() {
+        if (dataPath == null || dataPath.isBlank()) {
+            InputStream inputStream = getClass()
+                    .getClassLoader()
+                    .getResourceAsStream(FILE_NAME);
+
+            if (inputStream == null) {
+                throw new IllegalStateException("File not found in classpath: " + FILE_NAME);
+            }
+            return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        }
+
+        try {
+            return Files.newBufferedReader(Path.of(dataPath), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open training data " + dataPath, e);
+        }
+    }
+
     public PreparedData getPreparedDataSet() {
         List<double[]> featureList = new ArrayList<>();
         List<double[]> labelList = new ArrayList<>();
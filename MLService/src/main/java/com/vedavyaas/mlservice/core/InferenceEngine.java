@@ -0,0 +1,180 @@
+package com.vedavyaas.mlservice.core;
+
+import com.vedavyaas.mlservice.model.ServingModel;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.memory.enums.ResetPolicy;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the scoring network for the Kafka listener threads.
+ *
+ * MultiLayerNetwork.output is synchronized on the network, so every consumer thread works on its own
+ * clone of the trained model instead of queueing behind one instance. The input, normalized copy and
+ * output of a call are allocated inside a per-thread ND4J workspace; after the first call the
+ * workspace has learned its size and later calls reuse the same off-heap block. The reverted labels
+ * are copied into a per-thread result array that only grows, up to the largest batch seen.
+ *
+ * With {@code ml.inference.backend=java} the same network is evaluated by {@link PrimitiveNetwork}
+ * instead, which skips JNI dispatch entirely. Every exported model is first checked against the ND4J
+ * output on a set of probe rows; if it disagrees, the ND4J path keeps serving that model.
+ */
+@Component
+public class InferenceEngine {
+    private static final String WORKSPACE_ID = "ML_INFERENCE";
+    private static final WorkspaceConfiguration WORKSPACE_CONFIG = WorkspaceConfiguration.builder()
+            .initialSize(0)
+            .overallocationLimit(0.2)
+            .policyAllocation(AllocationPolicy.OVERALLOCATE)
+            .policyLearning(LearningPolicy.FIRST_LOOP)
+            .policyReset(ResetPolicy.BLOCK_LEFT)
+            .build();
+    private static final double TOLERANCE = 1e-3;
+    private static final double[] PROBE_OFFSETS = {-2.0, -1.0, -0.5, 0.0, 0.5, 1.0, 2.0};
+
+    private final Logger logger = LoggerFactory.getLogger(InferenceEngine.class);
+
+    private final ModelTrainingService modelTrainingService;
+    private final boolean javaBackend;
+    private final ThreadLocal<Replica> replicas = new ThreadLocal<>();
+    private final ThreadLocal<double[]> results = ThreadLocal.withInitial(() -> new double[0]);
+    private volatile PrimitiveNetwork primitiveNetwork;
+    private volatile boolean primitiveVerified;
+
+    public InferenceEngine(ModelTrainingService modelTrainingService,
+                           @Value("${ml.inference.backend:nd4j}") String backend) {
+        this.modelTrainingService = modelTrainingService;
+        this.javaBackend = "java".equalsIgnoreCase(backend);
+    }
+
+    /**
+     * The model currently served. Callers take it once and pass it to
+     * {@link #predict(ServingModel, double[], int)}, so whatever they key on its version was scored by it.
+     */
+    public ServingModel serving() {
+        return modelTrainingService.serving();
+    }
+
+    /**
+     * Scores {@code rows} debts laid out row-major as principal, outstanding, daysDue, with the given model.
+     *
+     * @return the reverted labels, row-major as recoveryProbability, trustScore, niceValue, in the first
+     *         {@code rows * 3} entries of an array owned by the calling thread and overwritten by its next call
+     */
+    public double[] predict(ServingModel servingModel, double[] features, int rows) {
+        if (javaBackend) {
+            PrimitiveNetwork network = primitiveNetwork(servingModel);
+            if (network != null) {
+                double[] result = result(rows);
+                network.predict(features, rows, result);
+                return result;
+            }
+        }
+
+        return predictNd4j(servingModel, features, rows);
+    }
+
+    private double[] result(int rows) {
+        double[] result = results.get();
+        if (result.length < rows * 3) {
+            result = new double[rows * 3];
+            results.set(result);
+        }
+        return result;
+    }
+
+    private double[] predictNd4j(ServingModel servingModel, double[] features, int rows) {
+        Replica replica = replica(servingModel);
+        double[] result = result(rows);
+
+        try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager().getAndActivateWorkspace(WORKSPACE_CONFIG, WORKSPACE_ID)) {
+            INDArray input = Nd4j.create(features, new int[]{rows, 3}).castTo(replica.dataType());
+            replica.normalizer().transform(input);
+
+            INDArray output = replica.network().output(input, false, workspace);
+            replica.normalizer().revertLabels(output);
+
+            // Copy out before the workspace scope closes, nothing allocated in it may escape
+            for (int i = 0; i < rows; i++) {
+                result[i * 3] = output.getDouble(i, 0);
+                result[i * 3 + 1] = output.getDouble(i, 1);
+                result[i * 3 + 2] = output.getDouble(i, 2);
+            }
+        }
+
+        return result;
+    }
+
+    private Replica replica(ServingModel servingModel) {
+        Replica replica = replicas.get();
+        if (replica == null || replica.version() != servingModel.version()) {
+            // First call on this thread, or a new model version was published since the last clone
+            MultiLayerNetwork network = servingModel.network().clone();
+            replica = new Replica(servingModel.version(), network, servingModel.normalizer(), network.params().dataType());
+            replicas.set(replica);
+        }
+
+        return replica;
+    }
+
+    /**
+     * Returns the exported copy of the given model, or null when it did not match ND4J. A caller still
+     * holding an older snapshot than the exported one also gets null and scores that batch with ND4J.
+     */
+    private PrimitiveNetwork primitiveNetwork(ServingModel servingModel) {
+        PrimitiveNetwork network = primitiveNetwork;
+        if (network == null || network.version() < servingModel.version()) {
+            synchronized (this) {
+                network = primitiveNetwork;
+                if (network == null || network.version() < servingModel.version()) {
+                    network = new PrimitiveNetwork(servingModel);
+                    primitiveVerified = verify(network, servingModel);
+                    primitiveNetwork = network;
+                }
+            }
+        }
+
+        return primitiveVerified && network.version() == servingModel.version() ? network : null;
+    }
+
+    private boolean verify(PrimitiveNetwork network, ServingModel servingModel) {
+        NormalizerStandardize normalizer = servingModel.normalizer();
+        // Probe rows spread around the training distribution, mean + k * std per feature
+        double[] mean = normalizer.getMean().toDoubleVector();
+        double[] std = normalizer.getStd().toDoubleVector();
+        int rows = PROBE_OFFSETS.length;
+        double[] probes = new double[rows * 3];
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < 3; i++) {
+                probes[row * 3 + i] = mean[i] + PROBE_OFFSETS[(row + i) % rows] * std[i];
+            }
+        }
+
+        double[] expected = predictNd4j(servingModel, probes, rows);
+        double[] actual = new double[rows * 3];
+        network.predict(probes, rows, actual);
+
+        for (int i = 0; i < rows * 3; i++) {
+            if (Math.abs(expected[i] - actual[i]) > TOLERANCE * Math.max(1.0, Math.abs(expected[i]))) {
+                logger.warn("Java backend differs from ND4J ({} vs {}), serving with ND4J", actual[i], expected[i]);
+                return false;
+            }
+        }
+
+        logger.info("Java inference backend verified against ND4J on {} probe rows", rows);
+        return true;
+    }
+
+    private record Replica(long version, MultiLayerNetwork network, NormalizerStandardize normalizer, DataType dataType) {
+    }
+}
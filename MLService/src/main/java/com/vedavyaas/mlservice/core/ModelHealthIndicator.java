@@ -0,0 +1,29 @@
+package com.vedavyaas.mlservice.core;
+
+import com.vedavyaas.mlservice.model.ModelStatusDTO;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Part of the readiness group, so the readiness probe stays DOWN until the first model and its
+ * normalizer are being served, whatever readiness state Spring itself has published.
+ */
+@Component
+public class ModelHealthIndicator implements HealthIndicator {
+    private final ModelTrainingService modelTrainingService;
+
+    public ModelHealthIndicator(ModelTrainingService modelTrainingService) {
+        this.modelTrainingService = modelTrainingService;
+    }
+
+    @Override
+    public Health health() {
+        ModelStatusDTO status = modelTrainingService.getStatus();
+        Health.Builder health = status.ready() ? Health.up() : Health.down();
+        return health
+                .withDetail("version", status.version())
+                .withDetail("training", status.training())
+                .build();
+    }
+}
@@ -1,7 +1,13 @@
 package com.vedavyaas.mlservice.core;
 
+import com.vedavyaas.mlservice.model.ModelStatusDTO;
 import com.vedavyaas.mlservice.model.PreparedData;
+import com.vedavyaas.mlservice.model.ServingModel;
+import com.vedavyaas.mlservice.model.StreamingData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.deeplearning4j.eval.RegressionEvaluation;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
@@ -12,25 +18,76 @@ import org.deeplearning4j.util.ModelSerializer;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
 import org.nd4j.linalg.learning.config.Adam;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Owns the model that predictions are served from.
+ *
+ * Training never runs on a caller's thread: it is queued on a dedicated single-thread executor and
+ * the finished network and normalizer are swapped in as one versioned {@link ServingModel}. Nothing
+ * waits for the first model: the Kafka listeners are started through {@link #whenReady(Runnable)} and
+ * readiness is reported by {@link ModelHealthIndicator}. A failed training is retried with backoff as
+ * long as no model is served; after that, a retrain keeps serving the previous version until the new
+ * one is published.
+ */
 @Service
 public class ModelTrainingService {
     private static final String MODEL_PATH = "models/loan-model.zip";
-    private static final int EPOCHS = 2000;
+    private static final String CHECKPOINT_PATH = "models/loan-model-best.zip";
+    private static final long RETRY_INITIAL_SECONDS = 30;
+    private static final long RETRY_MAX_SECONDS = 600;
+
+    private final Logger logger = LoggerFactory.getLogger(ModelTrainingService.class);
 
     private final CSVVectorService csvVectorService;
-    private MultiLayerNetwork model;
-    private NormalizerStandardize normalizer;
+    private final boolean miniBatchTraining;
+    private final int batchSize;
+    private final int maxEpochs;
+    private final int patience;
+    private final double minDelta;
+    private final ExecutorService trainingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "model-training");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<ServingModel> current = new AtomicReference<>();
+    private volatile CompletableFuture<ServingModel> pendingTraining;
+    private final AtomicLong versions = new AtomicLong();
+    private final CompletableFuture<ServingModel> firstModel = new CompletableFuture<>();
+    private final Counter failureCounter;
+    private int failedAttempts;
 
-    public ModelTrainingService(CSVVectorService csvVectorService) {
+    public ModelTrainingService(CSVVectorService csvVectorService,
+                                MeterRegistry meterRegistry,
+                                @Value("${ml.training.mode:minibatch}") String trainingMode,
+                                @Value("${ml.training.batch-size:32}") int batchSize,
+                                @Value("${ml.training.max-epochs:2000}") int maxEpochs,
+                                @Value("${ml.training.patience:50}") int patience,
+                                @Value("${ml.training.min-delta:0.0001}") double minDelta) {
         this.csvVectorService = csvVectorService;
+        this.miniBatchTraining = "minibatch".equalsIgnoreCase(trainingMode);
+        this.batchSize = batchSize;
+        this.maxEpochs = maxEpochs;
+        this.patience = patience;
+        this.minDelta = minDelta;
+        this.failureCounter = meterRegistry.counter("ml.training.failures");
     }
 
     @PostConstruct
@@ -39,30 +96,186 @@ public class ModelTrainingService {
 
         if (modelFile.exists()) {
             loadModel(modelFile);
-        } else {
-            trainModel();
         }
+
+        if (current.get() == null) {
+            // No usable model on disk, train in the background, the listeners start once it is published
+            retrain();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trainingExecutor.shutdownNow();
+    }
+
+    /**
+     * Whether a model is served; {@link ModelHealthIndicator} reports it to the readiness probe.
+     */
+    public boolean isReady() {
+        return firstModel.isDone();
+    }
+
+    /**
+     * Runs {@code action} once the first model is published, right away if one already is.
+     */
+    public void whenReady(Runnable action) {
+        firstModel.thenRun(action);
+    }
+
+    /**
+     * The model and normalizer currently served, read as one pair so a swap can never be observed halfway.
+     *
+     * @throws IllegalStateException if no model has been published yet
+     */
+    public ServingModel serving() {
+        ServingModel servingModel = current.get();
+        if (servingModel == null) {
+            throw new IllegalStateException("Model is not trained or loaded");
+        }
+        return servingModel;
+    }
+
+    public ModelStatusDTO getStatus() {
+        ServingModel servingModel = current.get();
+        CompletableFuture<ServingModel> training = pendingTraining;
+        return new ModelStatusDTO(
+                isReady(),
+                servingModel == null ? 0 : servingModel.version(),
+                training != null && !training.isDone()
+        );
+    }
+
+    /**
+     * Trains a new model from scratch on the training executor and publishes it once saved.
+     * A retrain requested while one is already running joins the running one.
+     */
+    public synchronized CompletableFuture<ServingModel> retrain() {
+        CompletableFuture<ServingModel> running = pendingTraining;
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+
+        CompletableFuture<ServingModel> next = CompletableFuture.supplyAsync(this::trainModel, trainingExecutor);
+        next.whenComplete((servingModel, e) -> onTrainingComplete(e));
+        pendingTraining = next;
+        return next;
     }
 
-    private void trainModel() {
+    /**
+     * A failure keeps the served model, if there is one. Without one the service has nothing to score
+     * with, so training is retried with exponential backoff until a model is published.
+     */
+    private synchronized void onTrainingComplete(Throwable failure) {
+        if (failure == null) {
+            failedAttempts = 0;
+            return;
+        }
+
+        failedAttempts++;
+        failureCounter.increment();
+        logger.error("Model training failed, attempt {}", failedAttempts, failure);
+        if (isReady()) return;
+
+        long delay = Math.min(RETRY_MAX_SECONDS, RETRY_INITIAL_SECONDS << Math.min(failedAttempts - 1, 10));
+        logger.warn("No model is served yet, retrying training in {} s", delay);
+        CompletableFuture.runAsync(this::retrain, CompletableFuture.delayedExecutor(delay, TimeUnit.SECONDS, trainingExecutor));
+    }
+
+    /**
+     * Publishes a trained pair under a new version and releases anyone waiting for the first model.
+     */
+    public synchronized ServingModel publish(MultiLayerNetwork network, NormalizerStandardize normalizer) {
+        ServingModel servingModel = new ServingModel(versions.incrementAndGet(), network, normalizer);
+        current.set(servingModel);
+        logger.info("Serving model version {}", servingModel.version());
+        if (firstModel.complete(servingModel)) {
+            logger.info("Model and normalizer ready.");
+        }
+        return servingModel;
+    }
+
+    /**
+     * Swaps in a network derived from {@code base}, for example fine-tuned, and persists it. Nothing
+     * happens if another model was published since {@code base} was read.
+     */
+    public synchronized boolean publishIfCurrent(ServingModel base, MultiLayerNetwork network) {
+        ServingModel servingModel = new ServingModel(versions.incrementAndGet(), network, base.normalizer());
+        if (!current.compareAndSet(base, servingModel)) {
+            return false;
+        }
+
+        saveModel(network, base.normalizer(), MODEL_PATH);
+        return true;
+    }
+
+    private ServingModel trainModel() {
+        if (miniBatchTraining) {
+            try (StreamingData streamingData = csvVectorService.openTrainingData(batchSize)) {
+                return saveAndPublish(trainMiniBatch(streamingData), streamingData.normalizer());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read training data", e);
+            }
+        }
+
         PreparedData preparedData = csvVectorService.getPreparedDataSet();
+        return saveAndPublish(trainFullBatch(preparedData), preparedData.normalizer());
+    }
+
+    private synchronized ServingModel saveAndPublish(MultiLayerNetwork network, NormalizerStandardize normalizer) {
+        saveModel(network, normalizer, MODEL_PATH);
+        return publish(network, normalizer);
+    }
 
-        this.normalizer = preparedData.normalizer();
-        model = createModel();
+    private MultiLayerNetwork trainFullBatch(PreparedData preparedData) {
+        MultiLayerNetwork network = createModel();
 
-        for (int epoch = 1; epoch <= EPOCHS; epoch++) {
-            model.fit(preparedData.trainingData());
+        for (int epoch = 1; epoch <= maxEpochs; epoch++) {
+            network.fit(preparedData.trainingData());
 
             if (epoch % 200 == 0 || epoch == 1) {
-                System.out.println("Epoch: " + epoch);
-                evaluateModel(preparedData.testingData(), preparedData.normalizer());
+                logger.info("Epoch: {}", epoch);
+                evaluateModel(network, preparedData.testingData(), preparedData.normalizer());
+            }
+        }
+
+        return network;
+    }
+
+    /**
+     * Streamed mini-batch epochs, stopped once the validation RMSE (mean over the three labels, original
+     * scale) has not improved by {@code minDelta} for {@code patience} epochs. Every improvement is kept
+     * in memory and checkpointed to disk, and the best network is returned rather than the last one.
+     */
+    private MultiLayerNetwork trainMiniBatch(StreamingData streamingData) {
+        NormalizerStandardize normalizer = streamingData.normalizer();
+        DataSetIterator trainingData = streamingData.trainingData();
+        DataSetIterator validationData = streamingData.validationData();
+
+        MultiLayerNetwork network = createModel();
+        MultiLayerNetwork best = network.clone();
+        double bestRmse = Double.MAX_VALUE;
+        int bestEpoch = 0;
+
+        for (int epoch = 1; epoch <= maxEpochs && epoch - bestEpoch <= patience; epoch++) {
+            trainingData.reset();
+            network.fit(trainingData);
+
+            double rmse = meanRmse(evaluate(network, validationData, normalizer));
+            if (rmse < bestRmse - minDelta) {
+                bestRmse = rmse;
+                bestEpoch = epoch;
+                best = network.clone();
+                saveModel(best, normalizer, CHECKPOINT_PATH);
             }
         }
 
-        saveModel();
+        logger.info("Early stopping: best epoch {}, validation RMSE {}", bestEpoch, bestRmse);
+        printEvaluation(evaluate(best, validationData, normalizer));
+        return best;
     }
 
-    private MultiLayerNetwork createModel() {
+    static MultiLayerNetwork createModel() {
         MultiLayerConfiguration configuration =
                 new NeuralNetConfiguration.Builder()
                         .seed(12345)
@@ -110,8 +323,39 @@ public class ModelTrainingService {
         return network;
     }
 
-    private void evaluateModel(DataSet testingData, NormalizerStandardize normalizer) {
-        INDArray predictions = model.output(testingData.getFeatures(), false);
+    private void evaluateModel(MultiLayerNetwork network, DataSet testingData, NormalizerStandardize normalizer) {
+        RegressionEvaluation evaluation = new RegressionEvaluation(3);
+        accumulate(evaluation, network, testingData, normalizer);
+        printEvaluation(evaluation);
+    }
+
+    private void printEvaluation(RegressionEvaluation evaluation) {
+        double recoveryRmse = evaluation.rootMeanSquaredError(0);
+        double trustRmse = evaluation.rootMeanSquaredError(1);
+        double niceRmse = evaluation.rootMeanSquaredError(2);
+
+        logger.info("Recovery RMSE: {}", recoveryRmse);
+        logger.info("Trust RMSE: {}", trustRmse);
+        logger.info("Nice Value RMSE: {}", niceRmse);
+    }
+
+    private double meanRmse(RegressionEvaluation evaluation) {
+        return (evaluation.rootMeanSquaredError(0)
+                + evaluation.rootMeanSquaredError(1)
+                + evaluation.rootMeanSquaredError(2)) / 3;
+    }
+
+    private RegressionEvaluation evaluate(MultiLayerNetwork network, DataSetIterator testingData, NormalizerStandardize normalizer) {
+        RegressionEvaluation evaluation = new RegressionEvaluation(3);
+        testingData.reset();
+        while (testingData.hasNext()) {
+            accumulate(evaluation, network, testingData.next(), normalizer);
+        }
+        return evaluation;
+    }
+
+    private void accumulate(RegressionEvaluation evaluation, MultiLayerNetwork network, DataSet testingData, NormalizerStandardize normalizer) {
+        INDArray predictions = network.output(testingData.getFeatures(), false);
 
         // Revert both predictions and true labels to original scale for meaningful RMSE
         INDArray trueLabels = testingData.getLabels().dup();
@@ -119,32 +363,22 @@ public class ModelTrainingService {
         normalizer.revertLabels(trueLabels);
         normalizer.revertLabels(predLabels);
 
-        RegressionEvaluation evaluation = new RegressionEvaluation(3);
         evaluation.eval(trueLabels, predLabels);
-
-        double recoveryRmse = evaluation.rootMeanSquaredError(0);
-        double trustRmse = evaluation.rootMeanSquaredError(1);
-        double niceRmse = evaluation.rootMeanSquaredError(2);
-
-        System.out.println("Recovery RMSE: " + recoveryRmse);
-        System.out.println("Trust RMSE: " + trustRmse);
-        System.out.println("Nice Value RMSE: " + niceRmse);
     }
 
-    private void saveModel() {
+    private void saveModel(MultiLayerNetwork network, NormalizerStandardize normalizer, String path) {
         try {
-            File modelFile = new File(MODEL_PATH);
+            File modelFile = new File(path);
             File parent = modelFile.getParentFile();
 
             if (parent != null) {
                 parent.mkdirs();
             }
 
-            ModelSerializer.writeModel(model, modelFile, true);
+            // The normalizer travels inside the same zip so a restart does not need to refit it
+            ModelSerializer.writeModel(network, modelFile, true, normalizer);
 
-            System.out.println(
-                    "Model saved: " + modelFile.getAbsolutePath()
-            );
+            logger.info("Model saved: {}", modelFile.getAbsolutePath());
 
         } catch (IOException e) {
             throw new RuntimeException("Failed to save model", e);
@@ -152,30 +386,27 @@ public class ModelTrainingService {
     }
 
     private void loadModel(File modelFile) {
+        MultiLayerNetwork network;
         try {
-            model = ModelSerializer.restoreMultiLayerNetwork(modelFile);
-            System.out.println("Trained model loaded.");
+            network = ModelSerializer.restoreMultiLayerNetwork(modelFile);
+            logger.info("Trained model loaded.");
         } catch (IOException e) {
             throw new RuntimeException("Failed to load model", e);
         }
-    }
 
-    public MultiLayerNetwork getModel() {
-        if (model == null) {
-            throw new IllegalStateException(
-                    "Model is not trained or loaded"
-            );
+        NormalizerStandardize normalizer;
+        try {
+            normalizer = ModelSerializer.restoreNormalizerFromFile(modelFile);
+        } catch (Exception e) {
+            normalizer = null;
         }
 
-        return model;
-    }
-
-    public NormalizerStandardize getNormalizer() {
         if (normalizer == null) {
-            // If model was loaded from disk (no normalizer in memory), retrain to get normalizer
-            trainModel();
+            // Models saved before the normalizer was bundled into the zip are retrained once and rewritten
+            logger.warn("Saved model has no normalizer, retraining.");
+            return;
         }
 
-        return normalizer;
+        publish(network, normalizer);
     }
-}
\ No newline at end of file
+}
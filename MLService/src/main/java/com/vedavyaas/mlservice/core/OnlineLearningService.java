@@ -0,0 +1,162 @@
+package com.vedavyaas.mlservice.core;
+
+import com.vedavyaas.mlservice.model.ServingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps the served model current from real outcomes instead of retraining it from scratch.
+ *
+ * Every debt the model scores is remembered with the features it was first scored with. When the debt
+ * is closed, Orchestration reports the principal and what was still outstanding; the recovered share
+ * becomes the label for those features and goes into a bounded replay buffer. On a schedule, a copy of
+ * the served network takes a few small steps on a random sample of the buffer and is swapped in, unless
+ * a full retrain published a newer model in the meantime.
+ *
+ * Only the recovery probability is observed, so the trust score and nice value outputs are masked out
+ * of the loss and keep what the model learned from the training data.
+ */
+@Service
+public class OnlineLearningService {
+
+    private final Logger logger = LoggerFactory.getLogger(OnlineLearningService.class);
+
+    private final ModelTrainingService modelTrainingService;
+    private final int batchSize;
+    private final int iterations;
+    private final int minOutcomes;
+
+    private final Map<String, double[]> scoredFeatures;
+    private final double[][] replayFeatures;
+    private final double[] replayRecovery;
+    private int replaySize;
+    private int replayNext;
+    private int outcomesSinceUpdate;
+
+    private final Counter outcomeCounter;
+    private final Counter unmatchedCounter;
+    private final Counter updateCounter;
+
+    public OnlineLearningService(ModelTrainingService modelTrainingService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ml.online.journal-size:200000}") int journalSize,
+                                 @Value("${ml.online.replay-size:10000}") int replaySize,
+                                 @Value("${ml.online.batch-size:256}") int batchSize,
+                                 @Value("${ml.online.iterations:5}") int iterations,
+                                 @Value("${ml.online.min-outcomes:32}") int minOutcomes) {
+        this.modelTrainingService = modelTrainingService;
+        this.batchSize = batchSize;
+        this.iterations = iterations;
+        this.minOutcomes = minOutcomes;
+
+        this.scoredFeatures = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+                return size() > journalSize;
+            }
+        };
+        this.replayFeatures = new double[replaySize][];
+        this.replayRecovery = new double[replaySize];
+
+        this.outcomeCounter = meterRegistry.counter("ml.online.outcomes");
+        this.unmatchedCounter = meterRegistry.counter("ml.online.outcomes.unmatched");
+        this.updateCounter = meterRegistry.counter("ml.online.updates");
+    }
+
+    /**
+     * Remembers the features a debt was first scored with, later re-scores of the same debt do not
+     * overwrite them.
+     */
+    public void recordScored(String debtName, double principalAmount, double outstandingAmount, double daysDue) {
+        synchronized (scoredFeatures) {
+            scoredFeatures.putIfAbsent(debtName, new double[]{principalAmount, outstandingAmount, daysDue});
+        }
+    }
+
+    public void recordOutcome(String debtName, double principalAmount, double outstandingAmount) {
+        double[] features;
+        synchronized (scoredFeatures) {
+            features = scoredFeatures.remove(debtName);
+        }
+
+        if (features == null || principalAmount <= 0) {
+            // scored before the last restart or evicted from the journal
+            unmatchedCounter.increment();
+            return;
+        }
+
+        double recovery = Math.max(0.0, Math.min(1.0, (principalAmount - outstandingAmount) / principalAmount));
+        synchronized (this) {
+            replayFeatures[replayNext] = features;
+            replayRecovery[replayNext] = recovery;
+            replayNext = (replayNext + 1) % replayFeatures.length;
+            replaySize = Math.min(replaySize + 1, replayFeatures.length);
+            outcomesSinceUpdate++;
+        }
+        outcomeCounter.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${ml.online.interval-ms:300000}")
+    public void fineTune() {
+        if (!modelTrainingService.isReady()) return;
+
+        DataSet sample = sample();
+        if (sample == null) return;
+
+        ServingModel base = modelTrainingService.serving();
+        MultiLayerNetwork network = base.network().clone();
+
+        base.normalizer().transform(sample);
+        for (int i = 0; i < iterations; i++) {
+            network.fit(sample);
+        }
+
+        if (modelTrainingService.publishIfCurrent(base, network)) {
+            updateCounter.increment();
+            logger.info("Fine-tuned model version {} on {} outcomes", base.version(), sample.numExamples());
+        }
+    }
+
+    private DataSet sample() {
+        double[] features;
+        double[] labels;
+        double[] mask;
+        int rows;
+
+        synchronized (this) {
+            if (outcomesSinceUpdate < minOutcomes) return null;
+            outcomesSinceUpdate = 0;
+
+            rows = Math.min(batchSize, replaySize);
+            features = new double[rows * 3];
+            labels = new double[rows * 3];
+            mask = new double[rows * 3];
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int row = 0; row < rows; row++) {
+                int index = random.nextInt(replaySize);
+                System.arraycopy(replayFeatures[index], 0, features, row * 3, 3);
+                labels[row * 3] = replayRecovery[index];
+                mask[row * 3] = 1;
+            }
+        }
+
+        INDArray featureArray = Nd4j.create(features, new int[]{rows, 3});
+        INDArray labelArray = Nd4j.create(labels, new int[]{rows, 3});
+        INDArray maskArray = Nd4j.create(mask, new int[]{rows, 3});
+        return new DataSet(featureArray, labelArray, null, maskArray);
+    }
+}
@@ -3,71 +3,119 @@ package com.vedavyaas.mlservice.core;
 import com.vedavyaas.mlservice.controller.KafkaController;
 import com.vedavyaas.mlservice.model.DebtModel;
 import com.vedavyaas.mlservice.model.PredictionModel;
-import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
-import org.nd4j.linalg.factory.Nd4j;
+import com.vedavyaas.mlservice.model.ServingModel;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class Orchestrator {
 
-    private final ModelTrainingService modelTrainingService;
+    private final InferenceEngine inferenceEngine;
+    private final PredictionCache predictionCache;
+    private final OnlineLearningService onlineLearningService;
     private final KafkaController kafkaController;
 
-    public Orchestrator(ModelTrainingService modelTrainingService, @Lazy KafkaController kafkaController) {
-        this.modelTrainingService = modelTrainingService;
+    public Orchestrator(InferenceEngine inferenceEngine, PredictionCache predictionCache,
+                        OnlineLearningService onlineLearningService, @Lazy KafkaController kafkaController) {
+        this.inferenceEngine = inferenceEngine;
+        this.predictionCache = predictionCache;
+        this.onlineLearningService = onlineLearningService;
         this.kafkaController = kafkaController;
     }
 
     public PredictionModel calculateScore(DebtModel debtModel) {
-        // --- Build feature vector (must match training: principalAmount, outstandingAmount, daysDue) ---
+        return calculateScores(List.of(debtModel)).get(0);
+    }
+
+    /**
+     * Scores a batch of debts with a single forward pass. The features of all debts go into
+     * one Nx3 matrix, so normalization and model.output cross into native code once per batch.
+     * Safe to call from several listener threads, see {@link InferenceEngine}. Debts whose features were
+     * already scored by the current model version are answered from {@link PredictionCache}.
+     */
+    public List<PredictionModel> calculateScores(List<DebtModel> debtModels) {
+        int rows = debtModels.size();
+        if (rows == 0) return List.of();
+
+        // --- Build feature matrix (must match training: principalAmount, outstandingAmount, daysDue) ---
         LocalDate today = LocalDate.now();
-        LocalDate dueLocalDate = debtModel.dueDate()
-                .toInstant()
-                .atZone(ZoneId.systemDefault())
-                .toLocalDate();
-        long daysDue = ChronoUnit.DAYS.between(today, dueLocalDate);
-
-        INDArray input = Nd4j.create(new double[]{
-                debtModel.principalAmount(),
-                debtModel.outStandingAmount(),
-                (double) daysDue
-        }, new int[]{1, 3});
-
-        // --- Normalize input using the same normalizer fitted on training data ---
-        NormalizerStandardize normalizer = modelTrainingService.getNormalizer();
-        normalizer.transform(input);
-
-        // --- Run inference ---
-        INDArray output = modelTrainingService.getModel().output(input, false);
-
-        // --- Revert output labels to original scale ---
-        normalizer.revertLabels(output);
-
-        double recoveryProbability = output.getDouble(0, 0);
-        double trustScore          = output.getDouble(0, 1);
-        int    niceValue           = (int) Math.round(output.getDouble(0, 2));
-
-        // Clamp probabilities to [0, 1]
-        recoveryProbability = Math.max(0.0, Math.min(1.0, recoveryProbability));
-        trustScore          = Math.max(0.0, Math.min(1.0, trustScore));
-
-        PredictionModel predictionModel = new PredictionModel(
-                debtModel.debtName(),
-                debtModel.managerName(),
-                recoveryProbability,
-                trustScore,
-                niceValue
-        );
-
-        // --- Publish result back to Kafka ---
-        kafkaController.sendMessage(predictionModel);
-
-        return predictionModel;
+        double[] features = new double[rows * 3];
+        for (int i = 0; i < rows; i++) {
+            DebtModel debtModel = debtModels.get(i);
+            LocalDate dueLocalDate = debtModel.dueDate()
+                    .toInstant()
+                    .atZone(ZoneId.systemDefault())
+                    .toLocalDate();
+
+            features[i * 3] = debtModel.principalAmount();
+            features[i * 3 + 1] = debtModel.outStandingAmount();
+            features[i * 3 + 2] = ChronoUnit.DAYS.between(today, dueLocalDate);
+
+            onlineLearningService.recordScored(debtModel.debtName(), features[i * 3], features[i * 3 + 1], features[i * 3 + 2]);
+        }
+
+        // --- Serve what the current model already scored, collect the rest ---
+        // one snapshot for the cache key and the forward pass, a model published meanwhile waits for the next batch
+        ServingModel servingModel = inferenceEngine.serving();
+        long version = servingModel.version();
+        double[] output = new double[rows * 3];
+        int[] misses = new int[rows];
+        int missCount = 0;
+        for (int i = 0; i < rows; i++) {
+            double[] cached = predictionCache.get(version, features[i * 3], features[i * 3 + 1], features[i * 3 + 2]);
+            if (cached == null) {
+                misses[missCount++] = i;
+            } else {
+                System.arraycopy(cached, 0, output, i * 3, 3);
+            }
+        }
+
+        // --- Normalize, run inference and revert labels to original scale, misses only ---
+        if (missCount > 0) {
+            double[] missFeatures = new double[missCount * 3];
+            for (int m = 0; m < missCount; m++) {
+                System.arraycopy(features, misses[m] * 3, missFeatures, m * 3, 3);
+            }
+
+            double[] missOutput = inferenceEngine.predict(servingModel, missFeatures, missCount);
+            for (int m = 0; m < missCount; m++) {
+                int i = misses[m];
+                System.arraycopy(missOutput, m * 3, output, i * 3, 3);
+                predictionCache.put(version, features[i * 3], features[i * 3 + 1], features[i * 3 + 2],
+                        new double[]{missOutput[m * 3], missOutput[m * 3 + 1], missOutput[m * 3 + 2]});
+            }
+        }
+
+        List<PredictionModel> predictionModels = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            DebtModel debtModel = debtModels.get(i);
+
+            double recoveryProbability = output[i * 3];
+            double trustScore          = output[i * 3 + 1];
+            int    niceValue           = (int) Math.round(output[i * 3 + 2]);
+
+            // Clamp probabilities to [0, 1]
+            recoveryProbability = Math.max(0.0, Math.min(1.0, recoveryProbability));
+            trustScore          = Math.max(0.0, Math.min(1.0, trustScore));
+
+            predictionModels.add(new PredictionModel(
+                    debtModel.debtName(),
+                    debtModel.managerName(),
+                    recoveryProbability,
+                    trustScore,
+                    niceValue
+            ));
+        }
+
+        // --- Publish results back to Kafka ---
+        kafkaController.sendMessages(predictionModels);
+
+        return predictionModels;
     }
 }
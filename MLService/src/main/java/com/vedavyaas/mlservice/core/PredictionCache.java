@@ -0,0 +1,70 @@
+package com.vedavyaas.mlservice.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of raw model outputs keyed by the model version and the feature vector, amounts
+ * quantized to cents. A debt that is re-published with unchanged amounts and due date, for example
+ * after a status change, is answered from here without running the network. A new model version
+ * changes every key, so stale entries are never hit and simply age out.
+ */
+@Component
+public class PredictionCache {
+
+    private final Map<Key, double[]> entries;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public PredictionCache(@Value("${ml.prediction-cache.size:100000}") int capacity, MeterRegistry meterRegistry) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.hitCounter = meterRegistry.counter("ml.prediction.cache.hits");
+        this.missCounter = meterRegistry.counter("ml.prediction.cache.misses");
+        Gauge.builder("ml.prediction.cache.size", this, PredictionCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the cached recoveryProbability, trustScore, niceValue, or null on a miss
+     */
+    public double[] get(long version, double principalAmount, double outstandingAmount, double daysDue) {
+        double[] output;
+        synchronized (entries) {
+            output = entries.get(new Key(version, cents(principalAmount), cents(outstandingAmount), (long) daysDue));
+        }
+
+        (output == null ? missCounter : hitCounter).increment();
+        return output;
+    }
+
+    public void put(long version, double principalAmount, double outstandingAmount, double daysDue, double[] output) {
+        Key key = new Key(version, cents(principalAmount), cents(outstandingAmount), (long) daysDue);
+        synchronized (entries) {
+            entries.put(key, output);
+        }
+    }
+
+    private double size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private record Key(long version, long principalCents, long outstandingCents, long daysDue) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.vedavyaas.mlservice.core;
+
+import com.vedavyaas.mlservice.model.ServingModel;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Plain Java copy of the dense scoring network built in {@link ModelTrainingService}, ReLU hidden
+ * layers and an identity output, together with the standardize and revert steps of its normalizer.
+ *
+ * The weights are exported once into flat row-major arrays; a prediction is nothing but loops over
+ * them, with per-thread scratch buffers so that no call allocates.
+ */
+final class PrimitiveNetwork {
+    private final long version;
+
+    private final double[][] weights;
+    private final double[][] biases;
+    private final int[] widths;
+
+    private final double[] featureMean;
+    private final double[] featureStd;
+    private final double[] labelMean;
+    private final double[] labelStd;
+
+    private final ThreadLocal<double[][]> scratch;
+
+    PrimitiveNetwork(ServingModel servingModel) {
+        MultiLayerNetwork network = servingModel.network();
+        NormalizerStandardize normalizer = servingModel.normalizer();
+        this.version = servingModel.version();
+
+        int layers = network.getnLayers();
+        this.weights = new double[layers][];
+        this.biases = new double[layers][];
+        this.widths = new int[layers + 1];
+
+        for (int layer = 0; layer < layers; layer++) {
+            // W is [nIn, nOut], read it row-major so weights[layer][in * nOut + out]
+            INDArray w = network.getLayer(layer).getParam(DefaultParamInitializer.WEIGHT_KEY);
+            INDArray b = network.getLayer(layer).getParam(DefaultParamInitializer.BIAS_KEY);
+
+            int nIn = (int) w.size(0);
+            int nOut = (int) w.size(1);
+            double[] flat = new double[nIn * nOut];
+            for (int in = 0; in < nIn; in++) {
+                for (int out = 0; out < nOut; out++) {
+                    flat[in * nOut + out] = w.getDouble(in, out);
+                }
+            }
+
+            weights[layer] = flat;
+            biases[layer] = b.toDoubleVector();
+            widths[layer] = nIn;
+            widths[layer + 1] = nOut;
+        }
+
+        // The divisors are read back through the normalizer rather than from getStd, so a zero or
+        // near-zero std is floored or replaced exactly as ND4J does it
+        this.featureMean = normalizer.getMean().toDoubleVector();
+        INDArray unitFeature = Nd4j.create(featureMean, new int[]{1, featureMean.length}).addi(1.0);
+        normalizer.transform(unitFeature);
+        this.featureStd = unitFeature.toDoubleVector();
+        for (int i = 0; i < featureStd.length; i++) {
+            featureStd[i] = 1.0 / featureStd[i];
+        }
+
+        this.labelMean = normalizer.getLabelMean().toDoubleVector();
+        INDArray unitLabel = Nd4j.ones(DataType.DOUBLE, 1, labelMean.length);
+        normalizer.revertLabels(unitLabel);
+        this.labelStd = unitLabel.toDoubleVector();
+        for (int i = 0; i < labelStd.length; i++) {
+            labelStd[i] -= labelMean[i];
+        }
+
+        this.scratch = ThreadLocal.withInitial(() -> {
+            double[][] buffers = new double[widths.length][];
+            for (int i = 0; i < widths.length; i++) {
+                buffers[i] = new double[widths[i]];
+            }
+            return buffers;
+        });
+    }
+
+    long version() {
+        return version;
+    }
+
+    /**
+     * Same contract as {@link InferenceEngine#predict(double[], int)}, writing into {@code result}.
+     */
+    void predict(double[] features, int rows, double[] result) {
+        double[][] buffers = scratch.get();
+        int inputs = widths[0];
+        int outputs = widths[widths.length - 1];
+        int last = weights.length - 1;
+
+        for (int row = 0; row < rows; row++) {
+            double[] activation = buffers[0];
+            for (int i = 0; i < inputs; i++) {
+                activation[i] = (features[row * inputs + i] - featureMean[i]) / featureStd[i];
+            }
+
+            for (int layer = 0; layer <= last; layer++) {
+                double[] w = weights[layer];
+                double[] next = buffers[layer + 1];
+                int nIn = widths[layer];
+                int nOut = widths[layer + 1];
+
+                System.arraycopy(biases[layer], 0, next, 0, nOut);
+                for (int in = 0; in < nIn; in++) {
+                    double value = activation[in];
+                    int offset = in * nOut;
+                    for (int out = 0; out < nOut; out++) {
+                        next[out] += value * w[offset + out];
+                    }
+                }
+
+                if (layer < last) {
+                    for (int out = 0; out < nOut; out++) {
+                        if (next[out] < 0) next[out] = 0;
+                    }
+                }
+                activation = next;
+            }
+
+            for (int i = 0; i < outputs; i++) {
+                result[row * outputs + i] = activation[i] * labelStd[i] + labelMean[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.vedavyaas.mlservice.core;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Streams training rows (principal_amount, outstanding_amount, due_date, recovery_probability,
+ * trust_score, nice_value) from a CSV without holding the file in memory.
+ *
+ * Rows are read a chunk at a time into preallocated primitive buffers, shuffled inside the chunk, and
+ * copied into two preallocated batch matrices that every {@link #next()} hands out again. Memory is
+ * therefore bounded by the chunk size whatever the length of the file. Every fifth row belongs to the
+ * validation side, so a training and a validation iterator over the same source never overlap.
+ *
+ * Batches are reused, so prefetching is disabled and a batch is only valid until the next call.
+ */
+class TrainingDataIterator implements DataSetIterator, Closeable {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final int VALIDATION_EVERY = 5;
+
+    private final Supplier<BufferedReader> source;
+    private final int batchSize;
+    private final boolean validation;
+    private final Random random = new Random();
+
+    private final double[] chunkFeatures;
+    private final double[] chunkLabels;
+    private final int[] order;
+    private final INDArray featureBatch;
+    private final INDArray labelBatch;
+
+    private BufferedReader reader;
+    private LocalDate today;
+    private long rowIndex;
+    private int chunkSize;
+    private int chunkPosition;
+    private DataSetPreProcessor preProcessor;
+
+    TrainingDataIterator(Supplier<BufferedReader> source, int batchSize, int chunkRows, boolean validation) {
+        this.source = source;
+        this.batchSize = batchSize;
+        this.validation = validation;
+
+        int rows = Math.max(chunkRows, batchSize);
+        this.chunkFeatures = new double[rows * 3];
+        this.chunkLabels = new double[rows * 3];
+        this.order = new int[rows];
+        this.featureBatch = Nd4j.create(batchSize, 3);
+        this.labelBatch = Nd4j.create(batchSize, 3);
+
+        reset();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return chunkPosition < chunkSize || fillChunk();
+    }
+
+    @Override
+    public DataSet next() {
+        return next(batchSize);
+    }
+
+    @Override
+    public DataSet next(int num) {
+        if (!hasNext()) {
+            throw new IllegalStateException("No more training rows");
+        }
+
+        int rows = Math.min(Math.min(num, batchSize), chunkSize - chunkPosition);
+        for (int row = 0; row < rows; row++) {
+            int offset = order[chunkPosition++] * 3;
+            for (int column = 0; column < 3; column++) {
+                featureBatch.putScalar(row, column, chunkFeatures[offset + column]);
+                labelBatch.putScalar(row, column, chunkLabels[offset + column]);
+            }
+        }
+
+        DataSet dataSet = rows == batchSize
+                ? new DataSet(featureBatch, labelBatch)
+                : new DataSet(
+                        featureBatch.get(NDArrayIndex.interval(0, rows), NDArrayIndex.all()),
+                        labelBatch.get(NDArrayIndex.interval(0, rows), NDArrayIndex.all())
+                );
+
+        if (preProcessor != null) {
+            preProcessor.preProcess(dataSet);
+        }
+        return dataSet;
+    }
+
+    private boolean fillChunk() {
+        chunkSize = 0;
+        chunkPosition = 0;
+
+        try {
+            String line;
+            while (chunkSize < order.length && (line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                boolean validationRow = rowIndex++ % VALIDATION_EVERY == 0;
+                if (validationRow != validation) continue;
+
+                parse(line, chunkSize * 3);
+                order[chunkSize] = chunkSize;
+                chunkSize++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read training data", e);
+        }
+
+        if (!validation) {
+            for (int i = chunkSize - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+
+        return chunkSize > 0;
+    }
+
+    private void parse(String line, int offset) {
+        String[] record = line.split(",");
+        if (record.length < 6) {
+            throw new IllegalStateException("Training row " + rowIndex + " has " + record.length + " columns, expected 6");
+        }
+
+        chunkFeatures[offset] = Double.parseDouble(record[0].trim());
+        chunkFeatures[offset + 1] = Double.parseDouble(record[1].trim());
+        chunkFeatures[offset + 2] = ChronoUnit.DAYS.between(today, LocalDate.parse(record[2].trim(), FORMATTER));
+
+        chunkLabels[offset] = Double.parseDouble(record[3].trim());
+        chunkLabels[offset + 1] = Double.parseDouble(record[4].trim());
+        chunkLabels[offset + 2] = Double.parseDouble(record[5].trim());
+    }
+
+    @Override
+    public void reset() {
+        close();
+
+        reader = source.get();
+        try {
+            // header
+            reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read training data", e);
+        }
+
+        today = LocalDate.now();
+        rowIndex = 0;
+        chunkSize = 0;
+        chunkPosition = 0;
+    }
+
+    @Override
+    public void close() {
+        if (reader == null) return;
+
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // nothing left to read from it either way
+        }
+        reader = null;
+    }
+
+    @Override
+    public int inputColumns() {
+        return 3;
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return 3;
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return false;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return null;
+    }
+}
@@ -0,0 +1,4 @@
+package com.vedavyaas.mlservice.model;
+
+public record ModelStatusDTO(boolean ready, long version, boolean training) {
+}
@@ -0,0 +1,14 @@
+package com.vedavyaas.mlservice.model;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
+
+/**
+ * A trained network and the normalizer fitted with it, swapped into the serving path together.
+ */
+public record ServingModel(
+        long version,
+        MultiLayerNetwork network,
+        NormalizerStandardize normalizer
+) {
+}
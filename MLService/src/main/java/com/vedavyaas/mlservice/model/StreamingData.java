@@ -0,0 +1,20 @@
+package com.vedavyaas.mlservice.model;
+
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public record StreamingData(
+        DataSetIterator trainingData,
+        DataSetIterator validationData,
+        NormalizerStandardize normalizer
+) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        if (trainingData instanceof Closeable closeable) closeable.close();
+        if (validationData instanceof Closeable closeable) closeable.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.vedavyaas.mlservice.core;
+
+import com.vedavyaas.mlservice.model.ServingModel;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link PrimitiveNetwork} against the ND4J forward pass of the same network and normalizer. Both run
+ * in double precision, so any difference beyond rounding is a difference in the math.
+ */
+class PrimitiveNetworkTest {
+    private static final int ROWS = 500;
+    private static final double TOLERANCE = 1e-8;
+
+    @Test
+    void matchesNd4jOnRandomInputs() {
+        NormalizerStandardize normalizer = normalizer(
+                new double[]{50_000, 20_000, 30}, new double[]{25_000, 12_000, 90},
+                new double[]{0.6, 0.5, 5}, new double[]{0.2, 0.25, 3});
+
+        assertMatchesNd4j(normalizer, randomFeatures(new double[]{50_000, 20_000, 30}, new double[]{25_000, 12_000, 90}));
+    }
+
+    @Test
+    void matchesNd4jWithZeroAndNearZeroStd() {
+        // a constant column, one that barely moves, and the same for the labels
+        double[] featureMean = {50_000, 20_000, 30};
+        NormalizerStandardize normalizer = normalizer(
+                featureMean, new double[]{25_000, 1e-9, 0},
+                new double[]{0.6, 0.5, 5}, new double[]{0.2, 1e-9, 0});
+
+        double[] features = randomFeatures(featureMean, new double[]{25_000, 1e-6, 0});
+        assertMatchesNd4j(normalizer, features);
+    }
+
+    private static void assertMatchesNd4j(NormalizerStandardize normalizer, double[] features) {
+        MultiLayerNetwork network = ModelTrainingService.createModel().convertDataType(DataType.DOUBLE);
+        PrimitiveNetwork primitiveNetwork = new PrimitiveNetwork(new ServingModel(1, network, normalizer));
+
+        double[] actual = new double[ROWS * 3];
+        primitiveNetwork.predict(features, ROWS, actual);
+
+        INDArray input = Nd4j.create(features, new int[]{ROWS, 3});
+        normalizer.transform(input);
+        INDArray expected = network.output(input, false);
+        normalizer.revertLabels(expected);
+
+        for (int row = 0; row < ROWS; row++) {
+            for (int i = 0; i < 3; i++) {
+                double value = expected.getDouble(row, i);
+                assertEquals(value, actual[row * 3 + i], TOLERANCE * Math.max(1.0, Math.abs(value)), "row " + row + ", output " + i);
+            }
+        }
+    }
+
+    private static NormalizerStandardize normalizer(double[] featureMean, double[] featureStd, double[] labelMean, double[] labelStd) {
+        NormalizerStandardize normalizer = new NormalizerStandardize();
+        normalizer.fitLabel(true);
+        normalizer.setFeatureStats(Nd4j.create(featureMean), Nd4j.create(featureStd));
+        normalizer.setLabelStats(Nd4j.create(labelMean), Nd4j.create(labelStd));
+        return normalizer;
+    }
+
+    private static double[] randomFeatures(double[] mean, double[] spread) {
+        Random random = new Random(42);
+        double[] features = new double[ROWS * 3];
+        for (int row = 0; row < ROWS; row++) {
+            for (int i = 0; i < 3; i++) {
+                features[row * 3 + i] = mean[i] + random.nextGaussian() * spread[i];
+            }
+        }
+        return features;
+    }
+}
@@ -0,0 +1,29 @@
+package com.vedavyaas.orchestration.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * One executor for every bulk ingestion. It holds exactly enough threads for the number of
+ * ingestions allowed to run at once, a parser per core plus a writer each, and is shut down with
+ * the context.
+ */
+@Configuration
+public class IngestionConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor ingestionExecutor(@Value("${orchestration.ingestion.max-concurrent:3}") int maxConcurrent) {
+        int threads = maxConcurrent * (Runtime.getRuntime().availableProcessors() + 1);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ingestion-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        // the pipeline admits at most maxConcurrent ingestions, so queued tasks never exceed the pool
+        // and only wait for threads of a finished ingestion to return
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
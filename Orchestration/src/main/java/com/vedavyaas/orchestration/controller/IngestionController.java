@@ -1,17 +1,24 @@
 package com.vedavyaas.orchestration.controller;
 
+import com.vedavyaas.orchestration.model.IngestionJobDTO;
+import com.vedavyaas.orchestration.model.IngestionReport;
 import com.vedavyaas.orchestration.model.InvalidCredentialsException;
 import com.vedavyaas.orchestration.service.DebtService;
+import com.vedavyaas.orchestration.service.IngestionJobService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * Endpoint to accept data in a csv file in bulk
  */
@@ -22,13 +29,15 @@ import org.springframework.web.multipart.MultipartFile;
 public class IngestionController {
 
     private final DebtService debtService;
+    private final IngestionJobService ingestionJobService;
 
-    public IngestionController(DebtService debtService) {
+    public IngestionController(DebtService debtService, IngestionJobService ingestionJobService) {
         this.debtService = debtService;
+        this.ingestionJobService = ingestionJobService;
     }
 
     @PostMapping("/bulk")
-    public ResponseEntity<String> bulkIngestionCSV(@RequestBody MultipartFile multipartFile, @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<IngestionReport> bulkIngestionCSV(@RequestBody MultipartFile multipartFile, @AuthenticationPrincipal Jwt jwt) {
         /**
          * Format of csv
          * debt_name, customer_name, customer_email, customer_phone_number, principal_amount, outstanding_amount, due_date, status
@@ -40,4 +49,34 @@ public class IngestionController {
 
         return ResponseEntity.ok(debtService.bulkIngestion(multipartFile, jwt.getSubject()));
     }
+
+    @PostMapping("/bulk/jobs")
+    public ResponseEntity<IngestionJobDTO> submitBulkIngestionJob(@RequestBody MultipartFile multipartFile, @AuthenticationPrincipal Jwt jwt) {
+        if (multipartFile.isEmpty()) {
+            throw new InvalidCredentialsException("File is empty.");
+        }
+
+        return ResponseEntity.accepted().body(ingestionJobService.submit(multipartFile, jwt.getSubject()));
+    }
+
+    @GetMapping("/bulk/jobs/{jobId}")
+    public ResponseEntity<IngestionJobDTO> getBulkIngestionJob(@PathVariable String jobId, @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(ingestionJobService.getJob(jobId, jwt.getSubject()));
+    }
+
+    @GetMapping("/bulk/jobs/{jobId}/errors")
+    public ResponseEntity<Resource> getBulkIngestionErrors(@PathVariable String jobId, @AuthenticationPrincipal Jwt jwt) {
+        Path errorFile = ingestionJobService.getErrorReport(jobId, jwt.getSubject());
+
+        // a job that failed before it started never wrote a report
+        if (!Files.exists(errorFile)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Resource errorReport = new FileSystemResource(errorFile);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + jobId + "-errors.csv\"")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(errorReport);
+    }
 }
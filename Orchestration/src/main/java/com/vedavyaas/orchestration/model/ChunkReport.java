@@ -0,0 +1,4 @@
+package com.vedavyaas.orchestration.model;
+
+public record ChunkReport(int chunk, int rows, long elapsedMillis, double rowsPerSecond) {
+}
@@ -0,0 +1,6 @@
+package com.vedavyaas.orchestration.model;
+
+import java.util.Date;
+
+public record DebtRow(long rowNumber, String debtName, String customerName, String customerEmail, String customerPhoneNumber, Double principalAmount, Double outstandingAmount, Date dueDate, Status status) {
+}
@@ -0,0 +1,6 @@
+package com.vedavyaas.orchestration.model;
+
+import java.time.Instant;
+
+public record IngestionJobDTO(String jobId, JobStatus status, String message, double progress, long rowsAccepted, long rowsRejected, Instant createdAt, Instant finishedAt) {
+}
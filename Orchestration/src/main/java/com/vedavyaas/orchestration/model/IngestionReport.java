@@ -0,0 +1,6 @@
+package com.vedavyaas.orchestration.model;
+
+import java.util.List;
+
+public record IngestionReport(String message, long rowsSaved, int chunks, long elapsedMillis, double rowsPerSecond, List<ChunkReport> chunkReports) {
+}
@@ -0,0 +1,8 @@
+package com.vedavyaas.orchestration.model;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -4,10 +4,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<CustomerEntity, Long> {
     Page<CustomerEntity> findByManager_ManagerName(String managerManagerName, Pageable pageable);
 
     Optional<CustomerEntity> findByNameOrEmail(String name, String email);
+
+    List<CustomerEntity> findByNameInOrEmailIn(Collection<String> names, Collection<String> emails);
 }
@@ -7,11 +7,17 @@ import java.time.Instant;
 import java.util.Date;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = DebtEntity.DEBT_NAME_CONSTRAINT, columnNames = "debt_name"))
 public class DebtEntity {
+    // named so a violation can be told apart from the other constraints of the table
+    public static final String DEBT_NAME_CONSTRAINT = "uk_debt_name";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "debt_seq")
+    @SequenceGenerator(name = "debt_seq", sequenceName = "debt_seq", allocationSize = 50)
     private Long id;
 
+    @Column(nullable = false)
     private String debtName;
 
     @ManyToOne
@@ -30,7 +36,6 @@ public class DebtEntity {
     private Status status;
     private Instant createdAt;
     private Instant modifiedAt;
-    private boolean sent;
 
     public DebtEntity() {
     }
@@ -44,7 +49,6 @@ public class DebtEntity {
         this.dueDate = dueDate;
         this.status = status;
         this.createdAt = this.modifiedAt = Instant.now();
-        this.sent = false;
     }
 
     public void setId(Long id) {
@@ -126,12 +130,4 @@ public class DebtEntity {
     public void setModifiedAt(Instant modifiedAt) {
         this.modifiedAt = modifiedAt;
     }
-
-    public boolean isSent() {
-        return sent;
-    }
-
-    public void setSent(boolean sent) {
-        this.sent = sent;
-    }
 }
\ No newline at end of file
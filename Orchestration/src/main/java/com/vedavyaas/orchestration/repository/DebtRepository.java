@@ -7,13 +7,17 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface DebtRepository extends JpaRepository<DebtEntity, Long> {
     boolean existsByDebtName(String debtName);
 
+    @Query("SELECT d.debtName FROM DebtEntity d WHERE d.debtName IN :debtNames")
+    List<String> findExistingDebtNames(@Param("debtNames") Collection<String> debtNames);
+
     @Query("SELECT new com.vedavyaas.orchestration.model.DebtDTO(d.id, d.debtName, c.name, m.managerName, d.principalAmount, d.outstandingAmount, d.dueDate, d.status) " +
            "FROM DebtEntity d JOIN d.customerEntity c JOIN d.managerName m " +
            "WHERE m.managerName = :managerName")
     Page<com.vedavyaas.orchestration.model.DebtDTO> findByManagerName_ManagerName(@Param("managerName") String managerName, Pageable pageable);
-
-    Page<DebtEntity> findBySent(boolean sent, Pageable pageable);
 }
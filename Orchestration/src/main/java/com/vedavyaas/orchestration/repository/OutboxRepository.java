@@ -0,0 +1,32 @@
+package com.vedavyaas.orchestration.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxRepository extends JpaRepository<OutboxEntity, Long> {
+    // Keyset scan over idx_outbox_pending, cost depends on the pending backlog and not on the table size.
+    List<OutboxEntity> findByPublishedFalseAndIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    long countByPublishedFalse();
+
+    Optional<OutboxEntity> findFirstByPublishedFalseOrderByIdAsc();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEntity o SET o.published = true WHERE o.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxEntity o WHERE o.published = true AND o.createdAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -2,11 +2,10 @@ package com.vedavyaas.orchestration.service;
 
 import com.vedavyaas.orchestration.model.*;
 import com.vedavyaas.orchestration.repository.*;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -17,11 +16,9 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.sql.Date;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
@@ -29,32 +26,22 @@ public class DebtService {
 
     private static final Logger logger = LoggerFactory.getLogger(DebtService.class);
     private final DebtRepository debtRepository;
-    private final ManagerRepository managerRepository;
+    private final ManagerCache managerCache;
     private final CustomerRepository customerRepository;
     private final KafkaService kafkaService;
+    private final IngestionPipeline ingestionPipeline;
 
-    public DebtService(DebtRepository debtRepository, ManagerRepository managerRepository, CustomerRepository customerRepository, KafkaService kafkaService) {
+    public DebtService(DebtRepository debtRepository, ManagerCache managerCache, CustomerRepository customerRepository, KafkaService kafkaService, IngestionPipeline ingestionPipeline) {
         this.debtRepository = debtRepository;
-        this.managerRepository = managerRepository;
+        this.managerCache = managerCache;
         this.customerRepository = customerRepository;
         this.kafkaService = kafkaService;
+        this.ingestionPipeline = ingestionPipeline;
     }
 
+    @Transactional
     public String createDebt(DebtDetails debtDetails, String managerName) {
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(managerName);
-
-        if (managerEntity.isEmpty()) {
-            ManagerEntity managerEntity1 = new ManagerEntity(managerName);
-            managerRepository.save(managerEntity1);
-            logger.info("New Manager : {} recorded.", managerName);
-
-            managerEntity = Optional.of(managerEntity1);
-        }
-
-        if (debtRepository.existsByDebtName(debtDetails.debtName())) {
-            logger.warn("Manager : {}, tried to create duplicate debt : {}", managerName, debtDetails.debtName());
-            throw new InvalidCredentialsException("Debt name already exists.");
-        }
+        ManagerEntity managerEntity = managerCache.findOrCreateManager(managerName);
 
         Optional<CustomerEntity> customerEntity = customerRepository.findById(debtDetails.customerId());
 
@@ -63,8 +50,16 @@ public class DebtService {
             throw new InvalidCredentialsException("No customer found.");
         }
 
-        DebtEntity debtEntity = new DebtEntity(debtDetails.debtName(), customerEntity.get(), managerEntity.get(), debtDetails.principalAmount(), debtDetails.outStandingAmount(), debtDetails.dueDate(), debtDetails.status());
-        debtRepository.save(debtEntity);
+        DebtEntity debtEntity = new DebtEntity(debtDetails.debtName(), customerEntity.get(), managerEntity, debtDetails.principalAmount(), debtDetails.outStandingAmount(), debtDetails.dueDate(), debtDetails.status());
+        try {
+            // the unique debt_name constraint decides, no read beforehand that a concurrent insert could race
+            debtRepository.saveAndFlush(debtEntity);
+        } catch (DataIntegrityViolationException e) {
+            if (!violates(e, DebtEntity.DEBT_NAME_CONSTRAINT)) throw e;
+            logger.warn("Manager : {}, tried to create duplicate debt : {}", managerName, debtDetails.debtName());
+            throw new InvalidCredentialsException("Debt name already exists.");
+        }
+        kafkaService.publishDebt(debtEntity);
 
         logger.info("Manager : {}, created a new debt successfully.", managerName);
 
@@ -88,15 +83,9 @@ public class DebtService {
             throw new InvalidCredentialsException("Customer with name/email already found.");
         }
 
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(managerName);
-        if (managerEntity.isEmpty()) {
-            ManagerEntity managerEntity1 = new ManagerEntity(managerName);
-            managerRepository.save(managerEntity1);
-            logger.info("New Manager : {} recorded in createCustomer.", managerName);
-            managerEntity = Optional.of(managerEntity1);
-        }
+        ManagerEntity managerEntity = managerCache.findOrCreateManager(managerName);
 
-        CustomerEntity customerEntity1 = new CustomerEntity(customerDetails.name(), customerDetails.phoneNumber(), customerDetails.email(), managerEntity.get());
+        CustomerEntity customerEntity1 = new CustomerEntity(customerDetails.name(), customerDetails.phoneNumber(), customerDetails.email(), managerEntity);
         customerRepository.save(customerEntity1);
 
         logger.info("Manager : {}, created customer.", managerName);
@@ -105,7 +94,7 @@ public class DebtService {
     }
 
     public Page<CustomerDTO> getCustomerInfo(Integer pageStart, Integer pageSize, String managerName) {
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(managerName);
+        Optional<ManagerEntity> managerEntity = managerCache.findManager(managerName);
 
         if (managerEntity.isEmpty()) {
             return Page.empty();
@@ -125,69 +114,16 @@ public class DebtService {
         );
     }
 
-    public String bulkIngestion(MultipartFile multipartFile, String managerName) {
-        Optional<ManagerEntity> managerEntity = managerRepository.findByManagerName(managerName);
-
-        if (managerEntity.isEmpty()) {
-            ManagerEntity managerEntity1 = new ManagerEntity(managerName);
-            managerRepository.save(managerEntity1);
-            managerEntity = Optional.of(managerEntity1);
-        }
-
-        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(multipartFile.getInputStream(), "UTF-8"));
-             CSVParser csvParser = new CSVParser(fileReader,
-                     CSVFormat.DEFAULT.builder().setHeader().setIgnoreHeaderCase(true).setTrim(true).build())) {
-
-            List<DebtEntity> products = new ArrayList<>();
-            Iterable<CSVRecord> csvRecords = csvParser.getRecords();
-
-            //debt_name, customer_name, customer_email, customer_phone_number, principal_amount, outstanding_amount, due_date, status
-            for (CSVRecord csvRecord : csvRecords) {
-                DebtEntity product = new DebtEntity(
-                        checkDuplicate(csvRecord.get("debt_name")),
-                        getCustomerEntity(
-                                csvRecord.get("customer_name"),
-                                csvRecord.get("customer_email"),
-                                csvRecord.get("customer_phone_number"),
-                                managerEntity.get()),
-                        managerEntity.get(),
-                        Double.parseDouble(csvRecord.get("principal_amount")),
-                        Double.parseDouble(csvRecord.get("outstanding_amount")),
-                        Date.valueOf(csvRecord.get("due_date")),
-                        Status.valueOf(csvRecord.get("status"))
-                );
-                products.add(product);
-            }
-            debtRepository.saveAll(products);
+    public IngestionReport bulkIngestion(MultipartFile multipartFile, String managerName) {
+        ManagerEntity managerEntity = managerCache.findOrCreateManager(managerName);
 
-            logger.info("Manager : {}, done bulk ingeston of debt.", managerName);
-            return "Saved successfully.";
-        } catch (UnsupportedEncodingException e) {
-            throw new InvalidCredentialsException("Invalid format of data.");
+        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(multipartFile.getInputStream(), StandardCharsets.UTF_8))) {
+            return ingestionPipeline.ingest(fileReader, managerEntity);
         } catch (IOException e) {
             throw new InvalidCredentialsException("Some error occurred.");
         }
     }
 
-    private String checkDuplicate(String debtName) throws UnsupportedEncodingException{
-        if (debtRepository.existsByDebtName(debtName)) throw new UnsupportedEncodingException();
-        return debtName;
-    }
-
-    private CustomerEntity getCustomerEntity(String customerName, String customerEmail, String customerPhoneNumber, ManagerEntity managerEntity) {
-        Optional<CustomerEntity> customerEntity = customerRepository.findByNameOrEmail(customerName, customerEmail);
-
-        if (customerEntity.isEmpty()) {
-            CustomerEntity customerEntity1 = new CustomerEntity(customerName, customerPhoneNumber, customerEmail, managerEntity);
-            customerRepository.save(customerEntity1);
-
-            return customerEntity1;
-        }
-
-        return customerEntity.get();
-
-    }
-
     @Transactional
     public String alterDebt(Long id, DebtDetails debtDetails, String managerName) {
         Optional<DebtEntity> debtEntity = debtRepository.findById(id);
@@ -211,16 +147,19 @@ public class DebtService {
             modified = true;
         }
         if (!debtDetails.status().equals(debtEntity.get().getStatus())) {
-            if (debtEntity.get().getStatus().equals(Status.CLOSED)) kafkaService.sendMessageStatus(debtDetails.debtName(), "false");
-            if (debtDetails.status().equals(Status.CLOSED)) kafkaService.sendMessageStatus(debtDetails.debtName(), "true");
+            if (debtEntity.get().getStatus().equals(Status.CLOSED)) kafkaService.sendMessageStatus(debtDetails.debtName(), false);
+            if (debtDetails.status().equals(Status.CLOSED)) {
+                kafkaService.sendMessageStatus(debtDetails.debtName(), true);
+                kafkaService.publishOutcome(debtEntity.get());
+            }
             debtEntity.get().setStatus(debtDetails.status());
             modified = true;
         }
 
         if (modified) {
-            debtEntity.get().setSent(false);
             debtEntity.get().setModifiedAt(Instant.now());
             debtRepository.save(debtEntity.get());
+            kafkaService.publishDebt(debtEntity.get());
 
             logger.info("Manager : {}, successfully changed the debt.", managerName);
             return "Debt changed successfully.";
@@ -259,4 +198,14 @@ public class DebtService {
         logger.warn("Manager : {}, tried to modify customer but failed.", managerName);
         return "No changes to modify.";
     }
+
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        // H2 reports the index backing the constraint, e.g. PUBLIC.UK_DEBT_NAME_INDEX_8
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toUpperCase(Locale.ROOT).contains(constraint.toUpperCase(Locale.ROOT));
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
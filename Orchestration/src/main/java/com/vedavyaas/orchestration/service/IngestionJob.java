@@ -0,0 +1,144 @@
+package com.vedavyaas.orchestration.service;
+
+import com.vedavyaas.orchestration.model.ChunkReport;
+import com.vedavyaas.orchestration.model.IngestionJobDTO;
+import com.vedavyaas.orchestration.model.JobStatus;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of one asynchronous bulk ingestion. Rejected rows are appended to a csv
+ * error report on disk, so the job itself stays small however many rows fail.
+ */
+class IngestionJob implements IngestionListener {
+    private final String id;
+    private final String managerName;
+    private final Path spoolFile;
+    private final Path errorFile;
+    private final long totalBytes;
+    private final Instant createdAt;
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsAccepted = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+
+    private volatile JobStatus status;
+    private volatile String message;
+    private volatile Instant finishedAt;
+    private CSVPrinter errorPrinter;
+
+    IngestionJob(String id, String managerName, Path spoolFile, Path errorFile, long totalBytes) {
+        this.id = id;
+        this.managerName = managerName;
+        this.spoolFile = spoolFile;
+        this.errorFile = errorFile;
+        this.totalBytes = totalBytes;
+        this.createdAt = Instant.now();
+        this.status = JobStatus.QUEUED;
+        this.message = "Waiting to be processed.";
+    }
+
+    synchronized void start() throws IOException {
+        errorPrinter = new CSVPrinter(Files.newBufferedWriter(errorFile),
+                CSVFormat.DEFAULT.builder().setHeader("row_number", "debt_name", "reason").build());
+        status = JobStatus.RUNNING;
+        message = "Processing.";
+    }
+
+    synchronized void finish(JobStatus status, String message) {
+        try {
+            if (errorPrinter != null) errorPrinter.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.finishedAt = Instant.now();
+            this.message = message;
+            this.status = status;
+        }
+    }
+
+    @Override
+    public void onChunk(ChunkReport chunkReport) {
+        rowsAccepted.addAndGet(chunkReport.rows());
+    }
+
+    @Override
+    public synchronized void onRejected(long rowNumber, String debtName, String reason) {
+        rowsRejected.incrementAndGet();
+        try {
+            errorPrinter.printRecord(rowNumber, debtName, reason);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Wraps the spooled file so progress can be reported as the share of bytes consumed by the reader.
+     */
+    InputStream track(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) bytesRead.incrementAndGet();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) bytesRead.addAndGet(n);
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                bytesRead.addAndGet(skipped);
+                return skipped;
+            }
+        };
+    }
+
+    IngestionJobDTO toDTO() {
+        double progress;
+        if (status == JobStatus.COMPLETED) progress = 1.0;
+        else if (totalBytes == 0) progress = 0.0;
+        else progress = Math.min(1.0, (double) bytesRead.get() / totalBytes);
+
+        return new IngestionJobDTO(id, status, message, progress, rowsAccepted.get(), rowsRejected.get(), createdAt, finishedAt);
+    }
+
+    boolean isFinished() {
+        return status == JobStatus.COMPLETED || status == JobStatus.FAILED;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getManagerName() {
+        return managerName;
+    }
+
+    Path getSpoolFile() {
+        return spoolFile;
+    }
+
+    Path getErrorFile() {
+        return errorFile;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
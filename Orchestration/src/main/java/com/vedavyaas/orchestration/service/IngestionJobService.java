@@ -0,0 +1,161 @@
+package com.vedavyaas.orchestration.service;
+
+import com.vedavyaas.orchestration.model.IngestionJobDTO;
+import com.vedavyaas.orchestration.model.IngestionReport;
+import com.vedavyaas.orchestration.model.InvalidCredentialsException;
+import com.vedavyaas.orchestration.model.JobStatus;
+import com.vedavyaas.orchestration.repository.ManagerEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Runs bulk ingestion in the background. Uploads are spooled to local disk and a
+ * job id is returned straight away, so large files do not hold a servlet thread
+ * or a gateway connection for the whole ingest.
+ *
+ * Jobs are held in memory only. A restart loses every job, running or finished, and
+ * its status can no longer be polled; rows a running job had already written stay
+ * saved, so the upload has to be resubmitted and its duplicates show up as rejected
+ * rows. Spool and error files left behind by a previous run are removed on start-up.
+ * Persisting jobs in a table is the follow-up if that is not acceptable.
+ */
+@Service
+public class IngestionJobService {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJobService.class);
+    private static final Path SPOOL_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "orchestration-ingestion");
+    private static final int JOB_THREADS = 2;
+    private static final Duration JOB_RETENTION = Duration.ofHours(24);
+
+    private final IngestionPipeline ingestionPipeline;
+    private final ManagerCache managerCache;
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(JOB_THREADS);
+
+    public IngestionJobService(IngestionPipeline ingestionPipeline, ManagerCache managerCache) {
+        this.ingestionPipeline = ingestionPipeline;
+        this.managerCache = managerCache;
+    }
+
+    @PostConstruct
+    public void removeOrphanedFiles() {
+        if (!Files.isDirectory(SPOOL_DIRECTORY)) return;
+
+        try (Stream<Path> files = Files.list(SPOOL_DIRECTORY)) {
+            List<Path> orphaned = files.toList();
+            if (orphaned.isEmpty()) return;
+
+            logger.warn("Removing {} files of bulk ingestion jobs lost in a restart.", orphaned.size());
+            orphaned.forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            logger.warn("Could not list {}.", SPOOL_DIRECTORY, e);
+        }
+    }
+
+    public IngestionJobDTO submit(MultipartFile multipartFile, String managerName) {
+        String jobId = UUID.randomUUID().toString();
+
+        try {
+            Files.createDirectories(SPOOL_DIRECTORY);
+            Path spoolFile = SPOOL_DIRECTORY.resolve(jobId + ".csv");
+            multipartFile.transferTo(spoolFile);
+
+            IngestionJob job = new IngestionJob(jobId, managerName, spoolFile, SPOOL_DIRECTORY.resolve(jobId + "-errors.csv"), Files.size(spoolFile));
+            jobs.put(jobId, job);
+            executor.execute(() -> run(job));
+
+            logger.info("Manager : {}, submitted bulk ingestion job {}.", managerName, jobId);
+            return job.toDTO();
+        } catch (IOException e) {
+            logger.error("Manager : {}, could not spool bulk ingestion upload.", managerName, e);
+            throw new InvalidCredentialsException("Some error occurred.");
+        }
+    }
+
+    public IngestionJobDTO getJob(String jobId, String managerName) {
+        return findJob(jobId, managerName).toDTO();
+    }
+
+    public Path getErrorReport(String jobId, String managerName) {
+        IngestionJob job = findJob(jobId, managerName);
+
+        if (!job.isFinished()) {
+            throw new InvalidCredentialsException("Job is still in progress.");
+        }
+
+        return job.getErrorFile();
+    }
+
+    private IngestionJob findJob(String jobId, String managerName) {
+        IngestionJob job = jobs.get(jobId);
+
+        if (job == null || !job.getManagerName().equals(managerName)) {
+            logger.warn("Manager : {}, tried to access invalid ingestion job.", managerName);
+            throw new InvalidCredentialsException("No such job found.");
+        }
+
+        return job;
+    }
+
+    private void run(IngestionJob job) {
+        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(job.track(Files.newInputStream(job.getSpoolFile())), StandardCharsets.UTF_8))) {
+            job.start();
+
+            ManagerEntity managerEntity = managerCache.findOrCreateManager(job.getManagerName());
+
+            IngestionReport report = ingestionPipeline.ingest(fileReader, managerEntity, job);
+            job.finish(JobStatus.COMPLETED, "Saved " + report.rowsSaved() + " rows.");
+
+            logger.info("Manager : {}, finished bulk ingestion job {}.", job.getManagerName(), job.getId());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Manager : {}, bulk ingestion job {} failed.", job.getManagerName(), job.getId(), e);
+            job.finish(JobStatus.FAILED, "Some error occurred.");
+        } finally {
+            deleteQuietly(job.getSpoolFile());
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(JOB_RETENTION);
+
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.getFinishedAt().isAfter(cutoff)) return false;
+            deleteQuietly(job.getErrorFile());
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}.", path, e);
+        }
+    }
+}
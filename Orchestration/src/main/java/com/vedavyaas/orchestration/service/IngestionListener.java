@@ -0,0 +1,13 @@
+package com.vedavyaas.orchestration.service;
+
+import com.vedavyaas.orchestration.model.ChunkReport;
+
+/**
+ * Receives progress from {@link IngestionPipeline}. Rejections are reported from the
+ * parser workers concurrently, so implementations must be thread safe.
+ */
+public interface IngestionListener {
+    void onChunk(ChunkReport chunkReport);
+
+    void onRejected(long rowNumber, String debtName, String reason);
+}
@@ -0,0 +1,332 @@
+package com.vedavyaas.orchestration.service;
+
+import com.vedavyaas.orchestration.model.ChunkReport;
+import com.vedavyaas.orchestration.model.DebtRow;
+import com.vedavyaas.orchestration.model.IngestionReport;
+import com.vedavyaas.orchestration.model.InvalidCredentialsException;
+import com.vedavyaas.orchestration.model.Status;
+import com.vedavyaas.orchestration.repository.*;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Three stage ingestion engine for bulk csv uploads.
+ * The calling thread reads records, a pool of workers parses and validates them
+ * and a single writer resolves and persists the chunks. Stages are connected by
+ * bounded queues so memory stays flat while parsing runs on all cores.
+ * Without a listener the first bad row stops the ingestion with an
+ * {@link InvalidCredentialsException} naming the row. Chunks are committed one
+ * by one, so the chunks written before it stay saved and the message says how
+ * many rows that was. With a listener bad rows are reported to it and skipped.
+ * Chunks reach the writer in the order the parsers finish them, so of two rows
+ * with the same debt name in different chunks the one saved is not necessarily
+ * the first in the file; the other is rejected as a duplicate.
+ * All ingestions share one bounded executor. An ingestion needs every one of its
+ * parsers and its writer running at once, so it waits for a free slot of
+ * orchestration.ingestion.max-concurrent before it starts any of them.
+ */
+@Service
+public class IngestionPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionPipeline.class);
+    private static final int CHUNK_SIZE = 1_000;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final long POLL_MILLIS = 100;
+
+    private static final List<CSVRecord> END_OF_RECORDS = new ArrayList<>();
+    private static final List<DebtRow> END_OF_ROWS = new ArrayList<>();
+
+    private final DebtRepository debtRepository;
+    private final CustomerRepository customerRepository;
+    private final DebtBatchWriter debtBatchWriter;
+    private final ThreadPoolTaskExecutor ingestionExecutor;
+    private final Semaphore slots;
+    private final int parserThreads;
+
+    public IngestionPipeline(DebtRepository debtRepository, CustomerRepository customerRepository, DebtBatchWriter debtBatchWriter,
+                             ThreadPoolTaskExecutor ingestionExecutor, @Value("${orchestration.ingestion.max-concurrent:3}") int maxConcurrent) {
+        this.debtRepository = debtRepository;
+        this.customerRepository = customerRepository;
+        this.debtBatchWriter = debtBatchWriter;
+        this.ingestionExecutor = ingestionExecutor;
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.parserThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    public IngestionReport ingest(Reader reader, ManagerEntity managerEntity) throws IOException {
+        return ingest(reader, managerEntity, null);
+    }
+
+    public IngestionReport ingest(Reader reader, ManagerEntity managerEntity, IngestionListener listener) throws IOException {
+        BlockingQueue<List<CSVRecord>> records = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<List<DebtRow>> rows = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ingestion interrupted.", e);
+        }
+
+        long startedAt = System.nanoTime();
+        List<Future<?>> tasks = new ArrayList<>(parserThreads + 1);
+
+        try {
+            for (int i = 0; i < parserThreads; i++) {
+                tasks.add(ingestionExecutor.submit(() -> parse(records, rows, failure, listener)));
+            }
+            Future<List<ChunkReport>> writer = ingestionExecutor.submit(() -> write(rows, managerEntity, failure, listener));
+            tasks.add(writer);
+
+            read(reader, records, failure);
+
+            List<ChunkReport> chunkReports = writer.get();
+
+            long rowsSaved = 0;
+            for (ChunkReport chunkReport : chunkReports) rowsSaved += chunkReport.rows();
+
+            if (failure.get() != null) {
+                logger.warn("Manager : {}, bulk ingestion stopped after saving {} debts.", managerEntity.getManagerName(), rowsSaved);
+                if (failure.get() instanceof InvalidCredentialsException rejected) {
+                    throw new InvalidCredentialsException(rejected.getMessage() + " " + rowsSaved + " rows were saved before it.");
+                }
+                rethrow(failure.get());
+            }
+
+            long elapsedNanos = System.nanoTime() - startedAt;
+            logger.info("Manager : {}, done bulk ingeston of {} debts in {} chunks.", managerEntity.getManagerName(), rowsSaved, chunkReports.size());
+
+            return new IngestionReport(
+                    "Saved successfully.",
+                    rowsSaved,
+                    chunkReports.size(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    rowsPerSecond(rowsSaved, elapsedNanos),
+                    chunkReports
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ingestion interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ingestion failed.", e.getCause());
+        } finally {
+            for (Future<?> task : tasks) task.cancel(true);
+            slots.release();
+        }
+    }
+
+    private void read(Reader reader, BlockingQueue<List<CSVRecord>> records, AtomicReference<Exception> failure) throws IOException, InterruptedException {
+        try (CSVParser csvParser = new CSVParser(reader,
+                CSVFormat.DEFAULT.builder().setHeader().setIgnoreHeaderCase(true).setTrim(true).build())) {
+
+            List<CSVRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (CSVRecord csvRecord : csvParser) {
+                chunk.add(csvRecord);
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    if (!offer(records, chunk, failure)) return;
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+
+            if (!chunk.isEmpty()) offer(records, chunk, failure);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            for (int i = 0; i < parserThreads; i++) {
+                if (!offer(records, END_OF_RECORDS, failure)) break;
+            }
+        }
+    }
+
+    private void parse(BlockingQueue<List<CSVRecord>> records, BlockingQueue<List<DebtRow>> rows, AtomicReference<Exception> failure, IngestionListener listener) {
+        try {
+            List<CSVRecord> chunk;
+            while ((chunk = take(records, failure)) != null && chunk != END_OF_RECORDS) {
+                List<DebtRow> parsed = new ArrayList<>(chunk.size());
+
+                for (CSVRecord csvRecord : chunk) {
+                    try {
+                        parsed.add(toDebtRow(csvRecord));
+                    } catch (RuntimeException e) {
+                        if (listener == null) throw new InvalidCredentialsException("Row " + csvRecord.getRecordNumber() + ": " + e.getMessage());
+                        listener.onRejected(csvRecord.getRecordNumber(), csvRecord.isSet("debt_name") ? csvRecord.get("debt_name") : null, e.getMessage());
+                    }
+                }
+
+                if (!offer(rows, parsed, failure)) return;
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            offer(rows, END_OF_ROWS, failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private DebtRow toDebtRow(CSVRecord csvRecord) {
+        //debt_name, customer_name, customer_email, customer_phone_number, principal_amount, outstanding_amount, due_date, status
+        return new DebtRow(
+                csvRecord.getRecordNumber(),
+                csvRecord.get("debt_name"),
+                csvRecord.get("customer_name"),
+                csvRecord.get("customer_email"),
+                csvRecord.get("customer_phone_number"),
+                Double.parseDouble(csvRecord.get("principal_amount")),
+                Double.parseDouble(csvRecord.get("outstanding_amount")),
+                Date.valueOf(csvRecord.get("due_date")),
+                Status.valueOf(csvRecord.get("status"))
+        );
+    }
+
+    private List<ChunkReport> write(BlockingQueue<List<DebtRow>> rows, ManagerEntity managerEntity, AtomicReference<Exception> failure, IngestionListener listener) throws InterruptedException {
+        List<ChunkReport> chunkReports = new ArrayList<>();
+        int finishedParsers = 0;
+
+        while (finishedParsers < parserThreads) {
+            List<DebtRow> chunk = take(rows, failure);
+            if (chunk == null) break;
+            if (chunk == END_OF_ROWS) {
+                finishedParsers++;
+                continue;
+            }
+
+            try {
+                ChunkReport chunkReport = flushChunk(chunk, managerEntity, chunkReports.size() + 1, listener);
+                chunkReports.add(chunkReport);
+                if (listener != null) listener.onChunk(chunkReport);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                break;
+            }
+        }
+
+        return chunkReports;
+    }
+
+    private ChunkReport flushChunk(List<DebtRow> chunk, ManagerEntity managerEntity, int chunkNumber, IngestionListener listener) {
+        long chunkStartedAt = System.nanoTime();
+
+        List<CustomerEntity> newCustomers = new ArrayList<>();
+        List<DebtEntity> debts = resolveChunk(chunk, managerEntity, newCustomers, listener);
+
+        try {
+            debtBatchWriter.write(newCustomers, debts);
+        } catch (RuntimeException e) {
+            if (listener == null) throw e;
+            // The chunk was written in one transaction, so all of its rows were rolled back together.
+            logger.warn("Manager : {}, chunk {} could not be saved.", managerEntity.getManagerName(), chunkNumber, e);
+            Set<String> failedDebtNames = new HashSet<>();
+            for (DebtEntity debt : debts) failedDebtNames.add(debt.getDebtName());
+            for (DebtRow row : chunk) {
+                if (failedDebtNames.remove(row.debtName())) listener.onRejected(row.rowNumber(), row.debtName(), "Could not be saved.");
+            }
+            debts = List.of();
+        }
+
+        long elapsedNanos = System.nanoTime() - chunkStartedAt;
+        ChunkReport chunkReport = new ChunkReport(chunkNumber, debts.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rowsPerSecond(debts.size(), elapsedNanos));
+        logger.info("Manager : {}, ingested chunk {} with {} rows at {} rows/s.", managerEntity.getManagerName(), chunkNumber, chunkReport.rows(), Math.round(chunkReport.rowsPerSecond()));
+
+        return chunkReport;
+    }
+
+    /**
+     * Resolves duplicates and customers for a whole chunk with a fixed number of IN queries
+     * instead of querying per row. Customers that do not exist yet are collected into
+     * newCustomers so they are written in the same batch as the debts.
+     */
+    private List<DebtEntity> resolveChunk(List<DebtRow> chunk, ManagerEntity managerEntity, List<CustomerEntity> newCustomers, IngestionListener listener) {
+        Set<String> debtNames = new HashSet<>(chunk.size() * 2);
+        Set<String> customerNames = new HashSet<>();
+        Set<String> customerEmails = new HashSet<>();
+
+        for (DebtRow row : chunk) {
+            debtNames.add(row.debtName());
+            customerNames.add(row.customerName());
+            customerEmails.add(row.customerEmail());
+        }
+
+        Set<String> existingDebtNames = new HashSet<>(debtRepository.findExistingDebtNames(debtNames));
+        Set<String> acceptedDebtNames = new HashSet<>(chunk.size() * 2);
+
+        Map<String, CustomerEntity> customersByName = new HashMap<>();
+        Map<String, CustomerEntity> customersByEmail = new HashMap<>();
+        for (CustomerEntity customer : customerRepository.findByNameInOrEmailIn(customerNames, customerEmails)) {
+            customersByName.putIfAbsent(customer.getName(), customer);
+            customersByEmail.putIfAbsent(customer.getEmail(), customer);
+        }
+
+        List<DebtEntity> debts = new ArrayList<>(chunk.size());
+
+        for (DebtRow row : chunk) {
+            if (existingDebtNames.contains(row.debtName()) || !acceptedDebtNames.add(row.debtName())) {
+                if (listener == null) throw new InvalidCredentialsException("Row " + row.rowNumber() + ": debt name " + row.debtName() + " already exists.");
+                listener.onRejected(row.rowNumber(), row.debtName(), "Debt name already exists.");
+                continue;
+            }
+
+            CustomerEntity customer = customersByName.get(row.customerName());
+            if (customer == null) customer = customersByEmail.get(row.customerEmail());
+
+            if (customer == null) {
+                customer = new CustomerEntity(row.customerName(), row.customerPhoneNumber(), row.customerEmail(), managerEntity);
+                customersByName.put(row.customerName(), customer);
+                customersByEmail.put(row.customerEmail(), customer);
+                newCustomers.add(customer);
+            }
+
+            debts.add(new DebtEntity(row.debtName(), customer, managerEntity, row.principalAmount(), row.outstandingAmount(), row.dueDate(), row.status()));
+        }
+
+        return debts;
+    }
+
+    private static <T> boolean offer(BlockingQueue<T> queue, T item, AtomicReference<Exception> failure) throws InterruptedException {
+        while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) return false;
+        }
+        return true;
+    }
+
+    private static <T> T take(BlockingQueue<T> queue, AtomicReference<Exception> failure) throws InterruptedException {
+        T item;
+        while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            if (failure.get() != null) return null;
+        }
+        return item;
+    }
+
+    private static void rethrow(Exception exception) throws IOException {
+        if (exception == null) return;
+        if (exception instanceof IOException ioException) throw ioException;
+        if (exception instanceof UncheckedIOException uncheckedIOException) throw uncheckedIOException.getCause();
+        if (exception instanceof RuntimeException runtimeException) throw runtimeException;
+        throw new IOException(exception);
+    }
+
+    private static double rowsPerSecond(long rows, long elapsedNanos) {
+        if (elapsedNanos <= 0) return 0.0;
+        return rows * 1_000_000_000.0 / elapsedNanos;
+    }
+}
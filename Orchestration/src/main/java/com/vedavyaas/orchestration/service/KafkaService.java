@@ -1,56 +1,180 @@
 package com.vedavyaas.orchestration.service;
 
+import com.vedavyaas.codec.WireCodec;
 import com.vedavyaas.orchestration.model.DebtKafkaModel;
 import com.vedavyaas.orchestration.repository.DebtEntity;
-import com.vedavyaas.orchestration.repository.DebtRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import com.vedavyaas.orchestration.repository.OutboxEntity;
+import com.vedavyaas.orchestration.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.text.SimpleDateFormat;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Outbox relay for everything Orchestration publishes to Kafka.
+ * Events are written to the outbox in the same transaction as the debt change and
+ * only marked as published once the broker has acknowledged them.
+ */
 @Service
 public class KafkaService {
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final DebtRepository debtRepository;
+    private static final Logger logger = LoggerFactory.getLogger(KafkaService.class);
+    private static final int RELAY_BATCH_SIZE = 1_000;
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+    private static final Duration PUBLISHED_RETENTION = Duration.ofHours(1);
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final OutboxRepository outboxRepository;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Timer relayTimer;
 
-    public KafkaService(KafkaTemplate<String, String> kafkaTemplate, DebtRepository debtRepository) {
+    public KafkaService(KafkaTemplate<String, byte[]> kafkaTemplate, OutboxRepository outboxRepository, MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
-        this.debtRepository = debtRepository;
+        this.outboxRepository = outboxRepository;
+
+        this.publishedCounter = meterRegistry.counter("outbox.published");
+        this.failedCounter = meterRegistry.counter("outbox.failed");
+        this.relayTimer = meterRegistry.timer("outbox.relay.batch");
+        Gauge.builder("outbox.lag.rows", outboxRepository, OutboxRepository::countByPublishedFalse)
+                .register(meterRegistry);
+        Gauge.builder("outbox.lag.seconds", outboxRepository, KafkaService::oldestPendingAgeSeconds)
+                .register(meterRegistry);
     }
 
-    @Transactional
-    @Scheduled(fixedDelay = 5_000)
-    public void sendMessage() {
-        Pageable pageable = PageRequest.of(0, 30);
-        Page<DebtEntity> debtEntities = debtRepository.findBySent(false, pageable);
+    /**
+     * Builds the debt-topic and debt-request-topic events for a debt. Callers persist them
+     * together with the debt so an event can never be lost or published for a rolled back change.
+     */
+    public List<OutboxEntity> debtEvents(DebtEntity debt) {
+        String managerName = debt.getManagerName().getManagerName();
+        DebtKafkaModel debtKafkaModel = new DebtKafkaModel(debt.getDebtName(), managerName);
+
+        byte[] debtRequest = WireCodec.encodeDebtRequest(
+                debt.getDebtName(),
+                managerName,
+                debt.getPrincipalAmount(),
+                debt.getOutstandingAmount(),
+                toLocalDate(debt.getDueDate()).toEpochDay()
+        );
+
+        return List.of(
+                new OutboxEntity("debt-topic", debt.getDebtName(), WireCodec.encodeDebt(debtKafkaModel.debtName(), debtKafkaModel.managerName())),
+                new OutboxEntity("debt-request-topic", debt.getDebtName(), debtRequest)
+        );
+    }
+
+    public void publishDebt(DebtEntity debt) {
+        outboxRepository.saveAll(debtEvents(debt));
+    }
+
+    public void sendMessageStatus(String debtName, boolean approved) {
+        outboxRepository.save(new OutboxEntity("debt-approval", debtName, WireCodec.encodeDebtApproval(debtName, approved)));
+    }
 
-        SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy");
+    /**
+     * Actual result of a closed debt, MLService learns the real recovery from it.
+     */
+    public void publishOutcome(DebtEntity debt) {
+        byte[] outcome = WireCodec.encodeDebtOutcome(
+                debt.getDebtName(),
+                debt.getManagerName().getManagerName(),
+                debt.getPrincipalAmount(),
+                debt.getOutstandingAmount()
+        );
+        outboxRepository.save(new OutboxEntity("debt-outcome-topic", debt.getDebtName(), outcome));
+    }
+
+    /**
+     * Drains the outbox with a keyset cursor. Every run starts again from the beginning,
+     * so rows committed late with a lower id (pooled sequences hand out ids ahead of commit)
+     * and rows that failed in the previous run are picked up on the next one.
+     */
+    @Scheduled(fixedDelay = 200)
+    public void sendMessage() {
+        long lastSeenId = 0;
+        List<OutboxEntity> batch;
+        do {
+            batch = outboxRepository.findByPublishedFalseAndIdGreaterThanOrderByIdAsc(lastSeenId, Limit.of(RELAY_BATCH_SIZE));
+            if (batch.isEmpty()) return;
+            lastSeenId = batch.get(batch.size() - 1).getId();
+        } while (relay(batch) && batch.size() == RELAY_BATCH_SIZE);
+    }
 
-        for (var debt : debtEntities) {
-            String managerName = debt.getManagerName().getManagerName();
+    /**
+     * Sends the whole batch without waiting in between, so the producer can pipeline it,
+     * then waits for the acknowledgements in id order. Only the acknowledged prefix up to
+     * the first failure is marked published: everything after it is sent again on the
+     * next run, after the failed event, so events of a debt never overtake an earlier one.
+     * Events of that tail that did get through are delivered twice, the consumers treat a
+     * repeated event as a no-op. Returns false if any send failed.
+     */
+    private boolean relay(List<OutboxEntity> batch) {
+        long startedAt = System.nanoTime();
 
-            DebtKafkaModel debtKafkaModel = new DebtKafkaModel(debt.getDebtName(), managerName);
-            kafkaTemplate.send("debt-topic", debtKafkaModel.debtName() + "EOF" + debtKafkaModel.managerName());
+        List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(batch.size());
+        for (OutboxEntity event : batch) {
+            futures.add(kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+        }
+        kafkaTemplate.flush();
 
-            String message = debt.getDebtName()
-                    + "EOF" + managerName
-                    + "EOF" + debt.getPrincipalAmount()
-                    + "EOF" + debt.getOutstandingAmount()
-                    + "EOF" + formatter.format(debt.getDueDate());
-            kafkaTemplate.send("debt-request-topic", message);
-            debt.setSent(true);
+        List<Long> acknowledged = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                futures.get(i).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                acknowledged.add(batch.get(i).getId());
+            } catch (ExecutionException | TimeoutException e) {
+                logger.warn("Outbox event {} to {} was not acknowledged, will retry it and the {} events after it.",
+                        batch.get(i).getId(), batch.get(i).getTopic(), batch.size() - i - 1, e);
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
         }
 
-        debtRepository.saveAll(debtEntities);
+        if (!acknowledged.isEmpty()) outboxRepository.markPublished(acknowledged);
+
+        publishedCounter.increment(acknowledged.size());
+        failedCounter.increment(batch.size() - acknowledged.size());
+        relayTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+        return acknowledged.size() == batch.size();
+    }
+
+    @Scheduled(fixedDelay = 600_000)
+    public void purgePublished() {
+        int purged = outboxRepository.deletePublishedBefore(Instant.now().minus(PUBLISHED_RETENTION));
+        if (purged > 0) logger.info("Purged {} published outbox events.", purged);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        // java.sql.Date does not support toInstant, it is what bulk ingestion hands us.
+        if (date instanceof java.sql.Date sqlDate) return sqlDate.toLocalDate();
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
 
-    public void sendMessageStatus(String debtName, String change) {
-        kafkaTemplate.send("debt-approval", debtName + "EOF" + change);
+    private static double oldestPendingAgeSeconds(OutboxRepository outboxRepository) {
+        return outboxRepository.findFirstByPublishedFalseOrderByIdAsc()
+                .map(oldest -> Duration.between(oldest.getCreatedAt(), Instant.now()).toMillis() / 1000.0)
+                .orElse(0.0);
     }
 }
@@ -0,0 +1,82 @@
+package com.vedavyaas.orchestration.service;
+
+import com.vedavyaas.orchestration.repository.ManagerEntity;
+import com.vedavyaas.orchestration.repository.ManagerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of manager name to {@link ManagerEntity}. Managers are never renamed or deleted,
+ * so an entry stays valid once loaded; only names that exist are cached, a miss always goes to the
+ * database. A manager created here is cached once its transaction commits, so a rolled back insert
+ * never leaves an id behind that the database does not know.
+ *
+ * The cached entities are detached and only meant to be referenced from other entities.
+ */
+@Service
+public class ManagerCache {
+    private static final Logger logger = LoggerFactory.getLogger(ManagerCache.class);
+
+    private final ManagerRepository managerRepository;
+    private final Map<String, ManagerEntity> managers = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public ManagerCache(ManagerRepository managerRepository, MeterRegistry meterRegistry) {
+        this.managerRepository = managerRepository;
+        this.hitCounter = meterRegistry.counter("name.cache.hits", "type", "manager");
+        this.missCounter = meterRegistry.counter("name.cache.misses", "type", "manager");
+        Gauge.builder("name.cache.size", managers, Map::size)
+                .tag("type", "manager")
+                .register(meterRegistry);
+    }
+
+    public Optional<ManagerEntity> findManager(String managerName) {
+        ManagerEntity managerEntity = managers.get(managerName);
+        if (managerEntity != null) {
+            hitCounter.increment();
+            return Optional.of(managerEntity);
+        }
+
+        missCounter.increment();
+        Optional<ManagerEntity> loaded = managerRepository.findByManagerName(managerName);
+        loaded.ifPresent(entity -> managers.put(managerName, entity));
+        return loaded;
+    }
+
+    public ManagerEntity findOrCreateManager(String managerName) {
+        Optional<ManagerEntity> managerEntity = findManager(managerName);
+        if (managerEntity.isPresent()) {
+            return managerEntity.get();
+        }
+
+        ManagerEntity managerEntity1 = managerRepository.save(new ManagerEntity(managerName));
+        logger.info("New Manager : {} recorded.", managerName);
+        cacheAfterCommit(managerName, managerEntity1);
+        return managerEntity1;
+    }
+
+    private void cacheAfterCommit(String managerName, ManagerEntity managerEntity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            managers.put(managerName, managerEntity);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                managers.put(managerName, managerEntity);
+            }
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package com.vedavyaas.orchestration;
+
+import com.vedavyaas.orchestration.model.IngestionReport;
+import com.vedavyaas.orchestration.model.Status;
+import com.vedavyaas.orchestration.repository.*;
+import com.vedavyaas.orchestration.service.IngestionPipeline;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk ingestion write throughput before and after batching, on the same generated CSV size.
+ *
+ * Before: every chunk is persisted through the persistence context with JDBC batching switched off
+ * for the session, which is how chunks were written before the batched writer. GenerationType.AUTO
+ * already resolved to a pooled sequence on Hibernate 6, so ids cost the same on both sides and the
+ * difference measured is batching plus the stateless writer.
+ * After: the ingestion pipeline reading the CSV from disk, as an upload or a job does.
+ *
+ * Run with: mvn test -Dtest=BulkIngestionBenchmark -Dbenchmark=true [-Dbenchmark.rows=1000000]
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BulkIngestionBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestionBenchmark.class);
+    private static final int CHUNK_SIZE = 1_000;
+    private static final int CUSTOMERS = 1_000;
+
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ManagerRepository managerRepository;
+
+    @Test
+    void compareRowsPerSecond() throws IOException {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+
+        double before = unbatchedPersist(rows);
+
+        Path csv = writeCsv(rows, "bench");
+        IngestionReport report;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            report = ingestionPipeline.ingest(reader, managerRepository.save(new ManagerEntity("bench-manager")));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+
+        logger.info("rows={} before (unbatched persist)={} rows/s after (bulk ingestion)={} rows/s in {} chunks, speedup {}x",
+                rows, Math.round(before), Math.round(report.rowsPerSecond()), report.chunks(),
+                String.format("%.1f", report.rowsPerSecond() / before));
+    }
+
+    private double unbatchedPersist(int rows) {
+        ManagerEntity manager = managerRepository.save(new ManagerEntity("baseline-manager"));
+
+        long startedAt = System.nanoTime();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            // batching is off for this session only, the rest of the context keeps its configuration
+            entityManager.unwrap(Session.class).setJdbcBatchSize(1);
+
+            entityManager.getTransaction().begin();
+            List<CustomerEntity> customers = new ArrayList<>(CUSTOMERS);
+            for (int i = 0; i < CUSTOMERS; i++) {
+                CustomerEntity customer = new CustomerEntity("baseline-customer-" + i, "000" + i, "baseline" + i + "@mail.com", manager);
+                entityManager.persist(customer);
+                customers.add(customer);
+            }
+            entityManager.getTransaction().commit();
+
+            for (int start = 0; start < rows; start += CHUNK_SIZE) {
+                entityManager.getTransaction().begin();
+                int end = Math.min(rows, start + CHUNK_SIZE);
+                for (int i = start; i < end; i++) {
+                    entityManager.persist(new DebtEntity("baseline-debt-" + i, entityManager.getReference(CustomerEntity.class, customers.get(i % CUSTOMERS).getId()),
+                            entityManager.getReference(ManagerEntity.class, manager.getId()), 1000.0 + i, 500.0, Date.valueOf("2027-01-01"), Status.PENDING));
+                }
+                entityManager.getTransaction().commit();
+                entityManager.clear();
+            }
+        } finally {
+            entityManager.close();
+        }
+
+        return rows * 1_000_000_000.0 / (System.nanoTime() - startedAt);
+    }
+
+    private Path writeCsv(int rows, String prefix) throws IOException {
+        Path csv = Files.createTempFile(prefix, ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("debt_name,customer_name,customer_email,customer_phone_number,principal_amount,outstanding_amount,due_date,status");
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                int customer = i % CUSTOMERS;
+                writer.write(prefix + "-debt-" + i + "," + prefix + "-customer-" + customer + "," + prefix + customer + "@mail.com,000" + customer + "," + (1000.0 + i) + ",500.0,2027-01-01,PENDING");
+                writer.newLine();
+            }
+        }
+        return csv;
+    }
+}
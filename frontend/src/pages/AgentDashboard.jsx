@@ -44,6 +44,19 @@ export const AgentDashboard = () => {
     }
   };
 
+  const openDebt = async (debt) => {
+    setSelectedDebt(debt);
+    setStatusForm(debt.status || 'ACTIVE');
+    try {
+      // notes are not part of the debt list, newest first from the API
+      const data = await assignmentService.getNotes(debt.id);
+      const notes = (data?.content || []).map(n => n.note).reverse();
+      setSelectedDebt(prev => (prev && prev.id === debt.id ? { ...prev, sightInformation: notes } : prev));
+    } catch (err) {
+      notify(err.response?.data?.message || 'Failed to fetch notes', 'error');
+    }
+  };
+
   const handleUpdateStatus = async (e) => {
     e.preventDefault();
     if (!statusForm || !selectedDebt) return;
@@ -64,7 +77,7 @@ export const AgentDashboard = () => {
     if (!noteForm.trim() || !selectedDebt) return;
     setUpdating(true);
     try {
-      const msg = await assignmentService.addDetails(selectedDebt.id, noteForm);
+      const msg = await assignmentService.appendNotes(selectedDebt.id, [noteForm]);
       notify(msg || 'Note added successfully');
       setSelectedDebt({
         ...selectedDebt,
@@ -316,10 +329,7 @@ export const AgentDashboard = () => {
                           <button
                             className="btn btn-primary"
                             style={{ padding: '4px 10px', fontSize: '0.75rem' }}
-                            onClick={() => {
-                              setSelectedDebt(d);
-                              setStatusForm(d.status || 'ACTIVE');
-                            }}
+                            onClick={() => openDebt(d)}
                           >
                             Manage
                           </button>
@@ -250,8 +250,8 @@ export const ManagerDashboard = () => {
 
     setUploadingBulk(true);
     try {
-      const msg = await orchestrationService.bulkIngestion(file);
-      notify(msg || 'Bulk upload successful');
+      const report = await orchestrationService.bulkIngestion(file);
+      notify(report?.message ? `${report.message} (${report.rowsSaved} rows)` : 'Bulk upload successful');
       setDebtPage(0);
       fetchDebtsData(0);
       setDebtTab('list_debts');
@@ -212,9 +212,13 @@ export const assignmentService = {
     const response = await assignApi.patch(`/api/assignment/${id}`, null, { params: { status } });
     return response.data;
   },
-  addDetails: async (id, notes) => {
-    // API expects a List<String> which maps to multiple 'notes' query params or a comma separated string
-    const response = await assignApi.put(`/api/assignment/${id}`, null, { params: { notes } });
+  appendNotes: async (id, notes) => {
+    // JSON body, so notes containing commas are not split like query params are
+    const response = await assignApi.post(`/api/assignment/${id}/notes`, notes);
+    return response.data;
+  },
+  getNotes: async (id, pageStart = 0, pageSize = 50) => {
+    const response = await assignApi.get(`/api/assignment/${id}/notes`, { params: { pageStart, pageSize } });
     return response.data;
   },
   changeAgent: async (id, agentName) => {